@@ -49,6 +49,7 @@
 
 
 use Common;
+use File::Spec;
 use Getopt::Std;
 
 my @powers_of_4;
@@ -62,16 +63,50 @@ $MAX_SEQUENCE_LENGTH = 1000000;
 
 &getopts("w:o:l:c:r:d:p:i:hs", \%args); # -v, -D, -o ARG, sets $args{v}, $args{D}, $args{o}
 
-if ($#ARGV == -1)
+if ($#ARGV == -1 && !$args{s})
 {
-  print "\nUsage: codon_pair_score.pl [-p codon_pair_preference_file] [-c coding_regions_file] [-w wt_seq] <input_file>\n\n";
+  print "\nUsage: codon_pair_score.pl [-p codon_pair_preference_file] [-c coding_regions_file] [-w wt_seq] <input_file>\n";
+  print "       codon_pair_score.pl -s [-p codon_pair_preference_file]\n\n";
   print "  <input_file>: input file in fasta format (Put '-' for STDIN)\n";
   print "  -c coding_regions_file: Import coding regions from file (Default: whole input)\n";
   print "  -p codon pair preference file: Import codon pair preferences\n";
+  print "  -s: Stream mode; read one sequence per line from STDIN and print one score line per sequence\n";
   print "\n";
   exit;
 }
 
+# Stream mode: load the tables once, then score every line of STDIN as a whole coding sequence,
+# printing (and flushing) a score line for each, so one process can serve many sequences
+if ($args{s})
+{
+  open(STDERR, ">", File::Spec->devnull());
+  &import_codon_info;
+  if ($args{p})
+  {
+    &import_codon_pair_info;
+  }
+  $| = 1;
+  while (my $seq = <STDIN>)
+  {
+    $seq =~ s/\s//g;
+    $seq =~ tr/a-z/A-Z/;
+    $num_of_coding_regions = 1;
+    $coding_regions[0][0] = 0;
+    $coding_regions[0][1] = length($seq);
+    # A sequence without any codon pair gets an empty score
+    my ($cp_score, $cp_score_vs_len, $codon_length) = eval { &calculate_codon_pair_score($seq) };
+    if (defined $codon_length)
+    {
+      print $codon_length,"|",$cp_score,"|",$cp_score_vs_len,"\n";
+    }
+    else
+    {
+      print "0|0|\n";
+    }
+  }
+  exit;
+}
+
 $args{f} = $ARGV[0];
 
 # FASTA record
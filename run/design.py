@@ -116,38 +116,39 @@ class Design:
         return Design(self.intervals + other.intervals, self.score + other.score)
 
 
-class IndexAndScore:
-    def __init__(self, index, score):
-        self.index = index
-        self.score = score
-
-
 def compute_best_score_combo(scorelist):
-    index_and_score_list = []
-    for i in range(len(scorelist[0])):
-        index_and_score_list.append(IndexAndScore([i, ], scorelist[0][i]))
-    for j in range(1, len(scorelist)):
-        index_and_score_list = compute_pairwise_score_combos(index_and_score_list, scorelist[j])
-    minindex = 0
-    minscorearray = index_and_score_list[0]
-    minscore = sum(index_and_score_list[0].score)
-    for i in range(1, len(index_and_score_list)):
-        if sum(index_and_score_list[i].score) < minscore:
-            minscore = sum(index_and_score_list[i].score)
-            minindex = index_and_score_list[i].index
-            minscorearray = index_and_score_list[i].score
+    """Branch and bound over acids, one acid at a time in index order. All scores are positive, so a
+    partial combination can do no better than its product times the smallest score left at each position
+    for the acids not yet chosen; branches that cannot beat the best full combination are skipped.
+    Gives the same result as trying every combination (the first of equal sums wins)."""
+    numacids = len(scorelist)
+    #remaining_min[j] is the product over acids j.. of the smallest score at each position
+    remaining_min = [None] * (numacids + 1)
+    remaining_min[numacids] = np.ones(len(scorelist[0][0]))
+    for j in range(numacids - 1, -1, -1):
+        remaining_min[j] = remaining_min[j + 1] * np.min(scorelist[j], axis=0)
+    first = scorelist[0][0]
+    for j in range(1, numacids):
+        first = first * scorelist[j][0]
+    #minindex stays 0 if the first combination is the best
+    best = [0, sum(first), first]
+
+    def search(index, partial):
+        j = len(index)
+        if j == numacids:
+            if sum(partial) < best[1]:
+                best[:] = [index, sum(partial), partial]
+            return
+        for i in range(len(scorelist[j])):
+            score = partial * scorelist[j][i]
+            if sum(score * remaining_min[j + 1]) < best[1]:
+                search(index + [i, ], score)
+
+    search([], np.ones(len(scorelist[0][0])))
+    minindex, minscore, minscorearray = best
     return minindex, minscore, minscorearray
 
 
-def compute_pairwise_score_combos(list1, list2):
-    """first argument is a list of IndexAndScore type, second list is a list of score arrays"""
-    newlist = []
-    for x in list1:
-        for i in range(len(list2)):
-            newlist.append(IndexAndScore(x.index + [i, ], x.score * list2[i]))
-    return newlist
-
-
 def compute_best_design(p, aoi, segsize, overlapsize, mins, maxs, numpts):
     acidlist = []
     scorelist = [[] for i in range(len(aoi))]
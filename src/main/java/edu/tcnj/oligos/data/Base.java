@@ -1,15 +1,16 @@
 package edu.tcnj.oligos.data;
 
-import com.google.common.collect.Lists;
-
-import java.util.List;
-
+/**
+ * IUPAC nucleotide codes. Each base carries a 4-bit mask of the concrete
+ * bases (A, C, G, T) it stands for, so two bases match iff their masks share a bit.
+ * Z (used for padding) has an empty mask and never matches anything.
+ */
 public enum Base {
-    A,
-    C,
-    T,
-    G,
-    Z,
+    A(0x1),
+    C(0x2),
+    T(0x8),
+    G(0x4),
+    Z(0x0),
 
     W(A, T),
     S(C, G),
@@ -18,27 +19,43 @@ public enum Base {
     R(A, G),
     Y(C, T),
 
-    B(C, G, T, S, K, Y),
-    D(A, G, T, R, W, K),
-    H(A, C, T, M, W, Y),
-    V(A, C, G, M, R, S),
+    B(C, G, T),
+    D(A, G, T),
+    H(A, C, T),
+    V(A, C, G),
 
-    N(A, C, T, G, W, S, M, K, R, Y, B, D, H, V);
+    N(A, C, T, G);
 
-    private final List<Base> included;
+    private final int mask;
+    private static final Base[] byMask = new Base[16];
+
+    static {
+        for (Base base : Base.values()) {
+            byMask[base.mask] = base;
+        }
+    }
+
+    Base(int mask) {
+        this.mask = mask;
+    }
 
     Base(Base... included) {
-        this.included = included == null ? Lists.newArrayList(this) : Lists.newArrayList(included);
+        int mask = 0;
+        for (Base base : included) {
+            mask |= base.mask;
+        }
+        this.mask = mask;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public static Base fromMask(int mask) {
+        return byMask[mask];
     }
 
     public boolean matches(Base other) {
-        if (this == other || this == N || other == N) {
-            return true;
-        } else if (this == Z || other == Z) {
-            return false;
-        } else if (this.included.contains(other) || other.included.contains(this)) {
-            return true;
-        }
-        return false;
+        return (this.mask & other.mask) != 0;
     }
 }
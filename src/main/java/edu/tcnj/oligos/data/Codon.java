@@ -98,6 +98,7 @@ public enum Codon {
     private final AminoAcid aa;
     private final Base[] baseSeq;
     private static final Map<AminoAcid, List<Codon>> acidCodonMap = Maps.newEnumMap(AminoAcid.class);
+    private static final Codon[] byOrdinal = Codon.values();
 
     static {
         for (Codon c : Codon.values()) {
@@ -145,6 +146,16 @@ public enum Codon {
         return aa;
     }
 
+    /**
+     * Look up a codon by its ordinal, as stored in packed sequences
+     *
+     * @param ordinal the ordinal of the codon
+     * @return the codon with that ordinal
+     */
+    public static Codon fromOrdinal(int ordinal) {
+        return byOrdinal[ordinal];
+    }
+
     public static List<Codon> getCodonsForAcid(AminoAcid acid) {
         return Collections.unmodifiableList(acidCodonMap.get(acid));
     }
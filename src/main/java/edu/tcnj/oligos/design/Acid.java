@@ -0,0 +1,119 @@
+package edu.tcnj.oligos.design;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * One amino acid of interest: where it occurs in the protein, how many occurrences each delta level
+ * needs, and the segment-level designs that are not beaten by any other design for it.
+ */
+public class Acid {
+    private final int[] designType;
+    private final int[] locations;
+    private final int[] requiredAcids;
+    private final List<IntervalDesign> designList;
+
+    /**
+     * @param name        the one-letter symbol of the acid
+     * @param protein     the protein, as one-letter symbols
+     * @param segSize     the length of an oligo, in codons
+     * @param overlapSize the length of an overlap, in codons
+     * @param minVal      the minimum frequency of the codon of interest
+     * @param maxVal      the maximum frequency of the codon of interest
+     * @param numPts      the number of frequency levels
+     */
+    public Acid(char name, String protein, int segSize, int overlapSize, double minVal, double maxVal, int numPts) {
+        checkArgument(numPts > 1, "Need at least two frequency levels for %s", name);
+        this.designType = computeDesignType(numPts);
+        this.locations = computeLocations(name, protein);
+        this.requiredAcids = computeRequiredAcids(locations, minVal, maxVal, numPts);
+        List<IntervalDesign> acidDesigns = computeAcidDesigns(locations);
+        List<IntervalDesign> segmentDesigns = Lists.newArrayListWithCapacity(acidDesigns.size());
+        for (IntervalDesign design : acidDesigns) {
+            segmentDesigns.add(DesignSolver.acidDesignToSegmentDesign(design, protein.length(),
+                    segSize, overlapSize));
+        }
+        this.designList = DesignSolver.removeSuboptimalDesigns(segmentDesigns);
+    }
+
+    //Each level halves the number of points left to split (e.g. 6 -> [3, 1])
+    private static int[] computeDesignType(int numPts) {
+        List<Integer> designType = Lists.newArrayList();
+        while (numPts > 1) {
+            numPts /= 2;
+            designType.add(numPts);
+        }
+        return Ints.toArray(designType);
+    }
+
+    private static int[] computeLocations(char name, String protein) {
+        List<Integer> locations = Lists.newArrayList();
+        for (int i = 0; i < protein.length(); i++) {
+            if (protein.charAt(i) == name) locations.add(i);
+        }
+        return Ints.toArray(locations);
+    }
+
+    private int[] computeRequiredAcids(int[] locations, double minVal, double maxVal, int numPts) {
+        int totalAvailable = locations.length;
+        long totalRequired = roundHalfAwayFromZero((maxVal - minVal) * totalAvailable);
+        if (totalRequired == 0) {
+            totalRequired = 1;
+        }
+        double delta = totalAvailable * (maxVal - minVal) / (numPts - 1.0);
+        double[] pointsRequired = new double[designType.length];
+        double[] required = new double[designType.length];
+        double sum = 0;
+        for (int i = 0; i < designType.length; i++) {
+            pointsRequired[i] = designType[i] * delta;
+            required[i] = Math.floor(pointsRequired[i]);
+            sum += required[i];
+        }
+        //Round up the levels that were rounded down the furthest until the total is reached
+        while (sum < totalRequired) {
+            int indexOfMax = 0;
+            for (int i = 1; i < designType.length; i++) {
+                if (pointsRequired[i] - required[i] > pointsRequired[indexOfMax] - required[indexOfMax]) {
+                    indexOfMax = i;
+                }
+            }
+            required[indexOfMax]++;
+            sum++;
+        }
+        int[] requiredAcids = new int[required.length];
+        for (int i = 0; i < required.length; i++) {
+            requiredAcids[i] = (int) required[i];
+        }
+        return requiredAcids;
+    }
+
+    private List<IntervalDesign> computeAcidDesigns(int[] locations) {
+        List<IntervalDesign> designs = DesignSolver.getPossibleIntervals(locations, requiredAcids[0]);
+        for (int i = 1; i < requiredAcids.length; i++) {
+            designs = DesignSolver.disjointCombos(designs,
+                    DesignSolver.getPossibleIntervals(locations, requiredAcids[i]));
+        }
+        return designs;
+    }
+
+    //Python 2's round()
+    private static long roundHalfAwayFromZero(double value) {
+        return (long) (Math.signum(value) * Math.floor(Math.abs(value) + 0.5));
+    }
+
+    public int[] getLocations() {
+        return locations.clone();
+    }
+
+    public int[] getRequiredAcids() {
+        return requiredAcids.clone();
+    }
+
+    public List<IntervalDesign> getDesignList() {
+        return designList;
+    }
+}
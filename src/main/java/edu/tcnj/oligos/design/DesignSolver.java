@@ -0,0 +1,495 @@
+package edu.tcnj.oligos.design;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import edu.tcnj.oligos.data.AminoAcid;
+import edu.tcnj.oligos.library.Design;
+import edu.tcnj.oligos.library.Fragment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Figures out the optimal library design in-process (a port of design.py), and turns it into the designs
+ * used to build the library. For every acid of interest, every placement of one interval per delta level
+ * over the acid's occurrences is scored by how many oligos it needs at each position; the combination of
+ * designs (one per acid) with the smallest total number of oligos wins.
+ */
+public class DesignSolver {
+
+    private final String protein;
+    private final String acidsOfInterest;
+    private final int oligoLength;
+    private final int overlapLength;
+    private final double[] minPercentages;
+    private final double[] maxPercentages;
+    private final int[] numFreqLevels;
+
+    public DesignSolver(String protein, String acidsOfInterest, int oligoLength, int overlapLength,
+                        double[] minPercentages, double[] maxPercentages, int[] numFreqLevels) {
+        checkArgument(!acidsOfInterest.isEmpty(), "No acids of interest");
+        checkArgument(minPercentages.length == acidsOfInterest.length()
+                && maxPercentages.length == acidsOfInterest.length()
+                && numFreqLevels.length == acidsOfInterest.length(), "Need one set of levels per acid of interest");
+        this.protein = protein;
+        this.acidsOfInterest = acidsOfInterest;
+        this.oligoLength = oligoLength;
+        this.overlapLength = overlapLength;
+        this.minPercentages = minPercentages;
+        this.maxPercentages = maxPercentages;
+        this.numFreqLevels = numFreqLevels;
+    }
+
+    /**
+     * Find the best design for every acid of interest
+     *
+     * @return A map of AminoAcids to the best designs for them
+     */
+    public Map<AminoAcid, Design> run() {
+        return run(null);
+    }
+
+    /**
+     * Find the best design for every acid of interest, searching for the best combination of designs on the given pool
+     *
+     * @param pool the pool to search on, or null to search on the calling thread
+     * @return A map of AminoAcids to the best designs for them
+     */
+    public Map<AminoAcid, Design> run(ForkJoinPool pool) {
+        List<Acid> acids = Lists.newArrayList();
+        List<List<double[]>> scoreList = Lists.newArrayList();
+        for (int i = 0; i < acidsOfInterest.length(); i++) {
+            Acid acid = new Acid(acidsOfInterest.charAt(i), protein, oligoLength, overlapLength,
+                    minPercentages[i], maxPercentages[i], numFreqLevels[i]);
+            checkState(!acid.getDesignList().isEmpty(),
+                    "No possible design for %s", acidsOfInterest.charAt(i));
+            acids.add(acid);
+            List<double[]> scores = Lists.newArrayList();
+            for (IntervalDesign design : acid.getDesignList()) {
+                scores.add(design.getScore());
+            }
+            scoreList.add(scores);
+        }
+        int[] best = computeBestScoreCombo(scoreList, pool);
+
+        Map<AminoAcid, Design> designs = Maps.newLinkedHashMap();
+        for (int i = 0; i < acids.size(); i++) {
+            Acid acid = acids.get(i);
+            List<IntervalDesign.Interval> intervals = acid.getDesignList().get(best[i]).getIntervals();
+            int[] requiredAcids = acid.getRequiredAcids();
+            //Map each interval (as a range of oligo positions) to the number of occurrences in it
+            Map<Fragment.Range, Integer> numInRegion = Maps.newHashMap();
+            for (int j = 0; j < intervals.size(); j++) {
+                IntervalDesign.Interval interval = intervals.get(j);
+                numInRegion.put(new Fragment.Range(interval.getStart(), interval.getEnd()), requiredAcids[j]);
+            }
+            String symbol = String.valueOf(acidsOfInterest.charAt(i));
+            int numpts = numFreqLevels[i];
+            int numGlobalOccurrences = protein.length() - protein.replace(symbol, "").length();
+            //Figure out the number of oligos needed for one delta step
+            double delta = (maxPercentages[i] - minPercentages[i]) / (numpts - 1) * numGlobalOccurrences;
+            designs.put(AminoAcid.getAcidForSymbol(symbol), calculateDesign(numpts, delta, numInRegion));
+        }
+        return designs;
+    }
+
+    //Every interval that holds exactly numberNeeded consecutive occurrences of the acid
+    static List<IntervalDesign> getPossibleIntervals(int[] locations, int numberNeeded) {
+        checkArgument(numberNeeded > 0, "Every delta level needs at least one occurrence");
+        List<IntervalDesign> intervals = Lists.newArrayList();
+        for (int i = 0; i + numberNeeded <= locations.length; i++) {
+            int start = locations[i];
+            int end = locations[i + numberNeeded - 1];
+            BitSet covered = new BitSet(end + 1);
+            covered.set(start, end + 1);
+            intervals.add(new IntervalDesign(
+                    Collections.singletonList(new IntervalDesign.Interval(start, end)), covered));
+        }
+        return intervals;
+    }
+
+    /**
+     * Combine every design from the first list with every design from the second that it does not overlap
+     */
+    static List<IntervalDesign> disjointCombos(List<IntervalDesign> list1, List<IntervalDesign> list2) {
+        List<IntervalDesign> combos = Lists.newArrayList();
+        for (IntervalDesign x : list1) {
+            for (IntervalDesign y : list2) {
+                if (!x.intersects(y)) {
+                    combos.add(x.plus(y));
+                }
+            }
+        }
+        return combos;
+    }
+
+    /**
+     * Convert a design over residues into one over oligo positions; the score at each position is
+     * the number of oligos it needs (doubling for each interval that covers it)
+     */
+    static IntervalDesign acidDesignToSegmentDesign(IntervalDesign acidDesign, int seqLength,
+                                                     int segSize, int overlapSize) {
+        int smalligo = segSize - overlapSize;
+        int numSegs = (int) Math.ceil(((double) seqLength - overlapSize) / smalligo);
+        List<IntervalDesign.Interval> segmentIntervals = Lists.newArrayList();
+        double[] segmentScore = new double[numSegs];
+        Arrays.fill(segmentScore, 1);
+        //left is the index of the leftmost segment in the design, right the index of the rightmost
+        for (IntervalDesign.Interval interval : acidDesign.getIntervals()) {
+            int x = interval.getStart();
+            int y = interval.getEnd();
+            int left = x <= segSize - 1 ? 0 : (x - overlapSize) / smalligo;
+            int right = y >= seqLength - segSize + 1 ? numSegs - 1 : y / smalligo;
+            segmentIntervals.add(new IntervalDesign.Interval(left, right));
+            for (int i = Math.max(0, left); i <= right && i < numSegs; i++) {
+                segmentScore[i] *= 2;
+            }
+        }
+        return new IntervalDesign(segmentIntervals, segmentScore);
+    }
+
+    /**
+     * Remove every design whose score is at least that of another design at every position,
+     * keeping only the first of designs with equal scores. A design can only be beaten by one with
+     * a smaller or equal score sum, so designs are taken in order of sum (then position) and kept
+     * unless a design already kept beats them; the kept designs are returned in their original order.
+     */
+    static List<IntervalDesign> removeSuboptimalDesigns(List<IntervalDesign> designList) {
+        final double[] sums = new double[designList.size()];
+        List<Integer> order = Lists.newArrayListWithCapacity(designList.size());
+        for (int i = 0; i < designList.size(); i++) {
+            for (double value : designList.get(i).getScore()) {
+                sums[i] += value;
+            }
+            order.add(i);
+        }
+        //Stable, so designs with equal sums stay in their original order
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(sums[i1], sums[i2]);
+            }
+        });
+        List<Integer> skyline = Lists.newArrayList();
+        for (int i : order) {
+            double[] score = designList.get(i).getScore();
+            boolean beaten = false;
+            for (int kept : skyline) {
+                if (atLeast(score, designList.get(kept).getScore())) {
+                    beaten = true;
+                    break;
+                }
+            }
+            if (!beaten) {
+                skyline.add(i);
+            }
+        }
+        Collections.sort(skyline);
+        List<IntervalDesign> designs = Lists.newArrayListWithCapacity(skyline.size());
+        for (int i : skyline) {
+            designs.add(designList.get(i));
+        }
+        return designs;
+    }
+
+    //Whether score1 >= score2 at every index
+    private static boolean atLeast(double[] score1, double[] score2) {
+        for (int i = 0; i < score1.length; i++) {
+            if (score1[i] < score2[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the combination of one score vector per acid whose elementwise product has the smallest sum;
+     * the same combination an exhaustive search would pick, trying combinations with the first acid's index
+     * changing slowest and keeping the first of equal sums (i.e. the lexicographically smallest indices).
+     * Acids are assigned one at a time, depth first, cheapest partial combination first. Every score is
+     * positive, so a partial combination can never do better than its product times the smallest score
+     * left at each position for the unassigned acids; branches whose bound cannot beat the best full
+     * combination found so far are pruned. The first acid's designs are searched as separate tasks
+     * on the given pool, sharing the best combination found.
+     *
+     * @param scoreList for every acid, the score vectors of its designs
+     * @param pool      the pool to search on, or null to search on the calling thread
+     * @return the index of the chosen design for every acid
+     */
+    static int[] computeBestScoreCombo(List<List<double[]>> scoreList, ForkJoinPool pool) {
+        final ComboSearch search = new ComboSearch(scoreList);
+        List<double[]> firstScores = scoreList.get(0);
+        if (pool == null) {
+            search.searchFrom(0, search.ones, new int[0]);
+            return search.getBest();
+        }
+        List<Callable<Void>> branches = Lists.newArrayListWithCapacity(firstScores.size());
+        for (Integer i : search.orderByBound(0, search.ones)) {
+            final int index = i;
+            final double[] score = firstScores.get(index);
+            branches.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if (search.canImprove(search.bound(0, score), new int[]{index})) {
+                        search.searchFrom(1, score, new int[]{index});
+                    }
+                    return null;
+                }
+            });
+        }
+        List<Future<Void>> results = pool.invokeAll(branches);
+        try {
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<Void> result : results) {
+                result.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Execution was cancelled.", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        return search.getBest();
+    }
+
+    static int[] computeBestScoreCombo(List<List<double[]>> scoreList) {
+        return computeBestScoreCombo(scoreList, null);
+    }
+
+    /**
+     * Shared state of one branch-and-bound search over score combinations
+     */
+    private static class ComboSearch {
+        private final List<List<double[]>> scoreList;
+        //remainingMin[j][s]: the product over acids j.. of the smallest score any of their designs has at s
+        private final double[][] remainingMin;
+        private final double[] ones;
+        private double bestScore = Double.POSITIVE_INFINITY;
+        private int[] best;
+
+        ComboSearch(List<List<double[]>> scoreList) {
+            checkArgument(!scoreList.isEmpty(), "No acids to combine designs for");
+            this.scoreList = scoreList;
+            int length = scoreList.get(0).get(0).length;
+            this.ones = new double[length];
+            Arrays.fill(ones, 1);
+            this.remainingMin = new double[scoreList.size() + 1][];
+            remainingMin[scoreList.size()] = ones;
+            for (int j = scoreList.size() - 1; j >= 0; j--) {
+                double[] min = new double[length];
+                Arrays.fill(min, Double.POSITIVE_INFINITY);
+                for (double[] score : scoreList.get(j)) {
+                    for (int s = 0; s < length; s++) {
+                        min[s] = Math.min(min[s], score[s]);
+                    }
+                }
+                for (int s = 0; s < length; s++) {
+                    min[s] *= remainingMin[j + 1][s];
+                }
+                remainingMin[j] = min;
+            }
+        }
+
+        //The smallest sum any combination extending a partial one (through acid j) can have
+        double bound(int acid, double[] partial) {
+            double sum = 0;
+            for (int s = 0; s < partial.length; s++) {
+                sum += partial[s] * remainingMin[acid + 1][s];
+            }
+            return sum;
+        }
+
+        //The designs of an acid, cheapest bound first (ties in index order)
+        List<Integer> orderByBound(int acid, double[] partial) {
+            List<double[]> scores = scoreList.get(acid);
+            final double[] bounds = new double[scores.size()];
+            List<Integer> order = Lists.newArrayListWithCapacity(scores.size());
+            for (int i = 0; i < scores.size(); i++) {
+                bounds[i] = bound(acid, times(partial, scores.get(i)));
+                order.add(i);
+            }
+            Collections.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    return Double.compare(bounds[i1], bounds[i2]);
+                }
+            });
+            return order;
+        }
+
+        //Assign acids [acid, end) on top of a partial combination of the acids before
+        void searchFrom(int acid, double[] partial, int[] indices) {
+            checkInterrupt();
+            if (acid == scoreList.size()) {
+                offer(bound(acid - 1, partial), indices);
+                return;
+            }
+            List<double[]> scores = scoreList.get(acid);
+            for (int i : orderByBound(acid, partial)) {
+                double[] next = times(partial, scores.get(i));
+                int[] nextIndices = Arrays.copyOf(indices, acid + 1);
+                nextIndices[acid] = i;
+                if (canImprove(bound(acid, next), nextIndices)) {
+                    searchFrom(acid + 1, next, nextIndices);
+                }
+            }
+        }
+
+        //Whether a combination starting with the given indices and bound could replace the best one
+        synchronized boolean canImprove(double bound, int[] prefix) {
+            if (best == null || bound < bestScore) return true;
+            return bound == bestScore && comparePrefix(prefix, best) <= 0;
+        }
+
+        synchronized void offer(double sum, int[] indices) {
+            if (best == null || sum < bestScore || (sum == bestScore && comparePrefix(indices, best) < 0)) {
+                bestScore = sum;
+                best = indices;
+            }
+        }
+
+        synchronized int[] getBest() {
+            return best.clone();
+        }
+
+        private static int comparePrefix(int[] prefix, int[] indices) {
+            for (int i = 0; i < prefix.length; i++) {
+                if (prefix[i] != indices[i]) return prefix[i] < indices[i] ? -1 : 1;
+            }
+            return 0;
+        }
+
+        private static double[] times(double[] score1, double[] score2) {
+            double[] product = new double[score1.length];
+            for (int s = 0; s < product.length; s++) {
+                product[s] = score1[s] * score2[s];
+            }
+            return product;
+        }
+    }
+
+    private static void checkInterrupt() {
+        if (Thread.currentThread().isInterrupted()) {
+            Exception e = new InterruptedException("Execution was cancelled.");
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    //Helper method used in calculateDesign;
+    //designs are calculated based on the prime factors of the number of regions
+    private static List<Integer> primeFactors(int number) {
+        int n = number;
+        List<Integer> factors = new ArrayList<>();
+        for (int i = 2; i <= n; i++) {
+            while (n % i == 0) {
+                factors.add(i);
+                n /= i;
+            }
+        }
+        return factors;
+    }
+
+    //Comparator used for calculateDesign; the map needs to be sorted in ascending order
+    //according to the number of occurrences (as the delta ranges are made from smallest to largest)
+    private static Comparator<Map.Entry<Fragment.Range, Integer>> rangeComparator = new Comparator<Map.Entry<Fragment.Range, Integer>>() {
+        @Override
+        public int compare(Map.Entry<Fragment.Range, Integer> r1, Map.Entry<Fragment.Range, Integer> r2) {
+            return r1.getValue().compareTo(r2.getValue());
+        }
+    };
+
+    /**
+     * Turn the number of occurrences needed in each range into delta levels for each range
+     *
+     * @param numpts        the number of frequency levels
+     * @param delta         the number of occurrences of the codon needed for one level
+     * @param numInRegion   the number of occurrences of the acid in each range of the design
+     * @return the design, mapping each range to its delta levels
+     */
+    public static Design calculateDesign(int numpts, double delta, Map<Fragment.Range, Integer> numInRegion) {
+        //List of ranges, to be ordered by numOccurrences
+        List<Map.Entry<Fragment.Range, Integer>> ranges = Lists.newArrayList(numInRegion.entrySet());
+
+        //When the delta lists are made, the first delta list has a smaller max than the second delta list, etc.
+        //So, the ranges should be sorted according to the number of occurrences in order to make sure the delta
+        //lists correspond to  the proper ranges.
+        Collections.sort(ranges, rangeComparator);
+
+        List<Integer> factorList = primeFactors(numpts);
+        double bestOver = Double.POSITIVE_INFINITY;
+        Map<Fragment.Range, List<Integer>> bestDesign = Maps.newHashMap();
+        //Try every possible design (every distinct permutation of the prime factors)
+        for (List<Integer> factors : Collections2.orderedPermutations(factorList)) {
+            Map<Fragment.Range, List<Integer>> levelsForRange = new HashMap<>();
+            int stepSize = 1;
+            double amtOver = 0;
+            //For every factor: compute the corresponding delta levels
+            for (int i = 0; i < factors.size(); i++) {
+                int factor = factors.get(i);
+
+                Fragment.Range range = ranges.get(i).getKey();
+                Integer numOccurrences = ranges.get(i).getValue();
+
+                List<Integer> deltas = new ArrayList<>();
+                //Compute the delta levels
+                for (int j = 0; j < factor * stepSize; j += stepSize) {
+                    deltas.add(j);
+                }
+                //See how far the exact max is over the max available (for comparing designs; the farther the
+                //max available is under the exact max, the worse the design can approximate that level).
+
+                //deltas.get(deltas.size() - 1) is the max number of deltas needed in this fragment.
+                //That times delta gives the max number of occurrences of the acid needed in this fragment.
+                double maxNeeded = delta * deltas.get(deltas.size() - 1);
+                double diff = maxNeeded - numOccurrences;
+                //If there aren't enough occurrences in the region (diff > 0), track how far off the num occurrences is.
+                if (diff > 0) {
+                    amtOver += diff;
+                }
+                //Increase the stepSize according to the methods described in the paper
+                stepSize *= factor;
+                //Add the deltas for this factor to its corresponding range
+                levelsForRange.put(range, deltas);
+            }
+            //Track the best design found so far
+            if (amtOver < bestOver) {
+                bestOver = amtOver;
+                bestDesign = levelsForRange;
+            }
+        }
+
+        //Given the best design, convert that into the deltasForRange needed for a Design object
+        Map<Fragment.Range, List<Integer>> deltasForRange = new HashMap<>();
+        for (Map.Entry<Fragment.Range, List<Integer>> entry : bestDesign.entrySet()) {
+            //Get the max number possible to cap the approximations
+            int max = numInRegion.get(entry.getKey());
+            List<Integer> theseCounts = new ArrayList<>();
+            //for every delta level, get the best whole-number approximate that is <= max
+            for (int level : entry.getValue()) {
+                double exactNeeded = level * delta;
+                int approximateNeeded = (int) (exactNeeded + 0.5);
+                if (approximateNeeded > max) {
+                    approximateNeeded = max;
+                }
+                theseCounts.add(approximateNeeded);
+            }
+            deltasForRange.put(entry.getKey(), theseCounts);
+        }
+        return new Design(deltasForRange);
+    }
+}
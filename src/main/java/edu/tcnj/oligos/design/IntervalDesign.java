@@ -0,0 +1,94 @@
+package edu.tcnj.oligos.design;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A candidate design: a list of intervals (one per delta level, in the order of the acid's design type).
+ * Acid-level designs keep the set of residues covered by their intervals;
+ * segment-level designs keep a score vector holding 2 to the number of intervals covering each oligo position.
+ */
+public class IntervalDesign {
+    private final List<Interval> intervals;
+    private final BitSet covered;
+    private final double[] score;
+
+    //An acid-level design
+    IntervalDesign(List<Interval> intervals, BitSet covered) {
+        this.intervals = ImmutableList.copyOf(intervals);
+        this.covered = covered;
+        this.score = null;
+    }
+
+    //A segment-level design
+    IntervalDesign(List<Interval> intervals, double[] score) {
+        this.intervals = ImmutableList.copyOf(intervals);
+        this.covered = null;
+        this.score = score;
+    }
+
+    public List<Interval> getIntervals() {
+        return intervals;
+    }
+
+    double[] getScore() {
+        return score;
+    }
+
+    /**
+     * Whether two acid-level designs cover any residue in common
+     */
+    boolean intersects(IntervalDesign other) {
+        checkArgument(covered != null && other.covered != null, "Only acid-level designs cover residues");
+        return covered.intersects(other.covered);
+    }
+
+    /**
+     * Combine two acid-level designs: the intervals of both, covering the residues of both
+     */
+    IntervalDesign plus(IntervalDesign other) {
+        checkArgument(covered != null && other.covered != null, "Only acid-level designs cover residues");
+        BitSet union = (BitSet) covered.clone();
+        union.or(other.covered);
+        return new IntervalDesign(ImmutableList.<Interval>builder().addAll(intervals)
+                .addAll(other.intervals).build(), union);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).omitNullValues().add("intervals", intervals)
+                .add("covered", covered).add("score", score == null ? null : Arrays.toString(score)).toString();
+    }
+
+    /**
+     * A pair of positions, both inclusive
+     */
+    public static class Interval {
+        private final int start;
+        private final int end;
+
+        Interval(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + start + ", " + end + ")";
+        }
+    }
+}
@@ -1,75 +1,161 @@
 package edu.tcnj.oligos.ext;
 
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.library.CodonPairScorer;
+
 import java.io.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * Scores genes with the reference cps.pl. Scripts are kept running in stream mode (cps.pl -s),
+ * each loading the codon pair table once and then scoring one gene per line of stdin; a bounded
+ * pool of them is shared by every caller, and each call uses one of them for all of its genes.
+ */
 public final class PerlHandler {
+    //The directory holding cps.pl and its codon pair table; the working directory if not set
+    public static final String DIRECTORY_PROPERTY = "oligoDesigner.perlDirectory";
 
     private PerlHandler() {}
 
-    private static boolean hasPerl;
-    static {
-        ProcessBuilder pb = new ProcessBuilder("perl", "-v");
-        try {
-            pb.start();
-            hasPerl = true;
-        } catch (IOException ignored) {
-            System.out.println("Perl not found. Codon pair scores will be unknown.");
-            hasPerl = false;
+    //Genes written to a script before reading back their scores; the scores have to fit in the pipe
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    private static Boolean hasPerl;
+    private static int numWorkers = 0;
+    private static final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+
+    //Look for perl the first time it is needed
+    private static synchronized boolean hasPerl() {
+        if (hasPerl == null) {
+            ProcessBuilder pb = new ProcessBuilder("perl", "-v");
+            try {
+                pb.start();
+                hasPerl = true;
+            } catch (IOException ignored) {
+                System.out.println("Perl not found. Codon pair scores will be unknown.");
+                hasPerl = false;
+            }
         }
+        return hasPerl;
     }
 
     public static Double getCodonPairScore(String gene) {
-        if (!hasPerl) return null;
-        File cpsScript = new File("cps.pl");
-        if (!cpsScript.exists()) {
-            return null;
+        return getCodonPairScores(Collections.singletonList(gene)).get(0);
+    }
+
+    /**
+     * Score genes on one script from the pool, writing them in batches and reading the scores back as they come
+     *
+     * @param genes the genes to score
+     * @return the score of each gene, or null where it is unknown
+     */
+    public static List<Double> getCodonPairScores(List<String> genes) {
+        List<Double> scores = Lists.newArrayListWithCapacity(genes.size());
+        if (hasPerl() && new File(directory(), "cps.pl").exists()) {
+            Worker worker = null;
+            boolean finished = false;
+            try {
+                worker = borrowWorker();
+                for (List<String> batch : Lists.partition(genes, BATCH_SIZE)) {
+                    scores.addAll(worker.score(batch));
+                }
+                finished = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Execution was cancelled.", e);
+            } finally {
+                //A worker left halfway through a batch (whatever stopped it) can't be reused
+                if (finished) {
+                    idleWorkers.add(worker);
+                } else {
+                    retireWorker(worker);
+                }
+            }
         }
-        File temp = null;
-        StringBuilder content = new StringBuilder();
-        content.append(">\n").append(gene);
-
-        try {
-            temp = File.createTempFile("cps_gene", "fa");
-            FileWriter fw = new FileWriter(temp);
-            BufferedWriter bw = new BufferedWriter(fw);
-            bw.write(content.toString());
-            bw.close();
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            if (temp != null) temp.delete();
-            return null;
+        while (scores.size() < genes.size()) {
+            scores.add(null);
         }
-        ProcessBuilder pb = new ProcessBuilder("perl","cps.pl", "-p e.coli.k12.codon_pair_info.expected", temp.getAbsolutePath());
-        StringBuilder plOutSB = null;
-        try {
-            Process proc = pb.start();
-            int ev = proc.waitFor();
-            if (ev == 0) {
-                plOutSB = new StringBuilder();
-                BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()));
-                String line;
-                while ((line = br.readLine()) != null) {
-                    plOutSB.append(line);
+        return scores;
+    }
+
+    private static File directory() {
+        return new File(System.getProperty(DIRECTORY_PROPERTY, "."));
+    }
+
+    //Take an idle worker, start a new one if the pool isn't full, or wait for one to be returned
+    private static Worker borrowWorker() throws IOException, InterruptedException {
+        Worker worker = idleWorkers.poll();
+        if (worker != null) return worker;
+        synchronized (PerlHandler.class) {
+            if (numWorkers < MAX_WORKERS) {
+                worker = new Worker();
+                numWorkers++;
+                return worker;
+            }
+        }
+        return idleWorkers.take();
+    }
+
+    private static void retireWorker(Worker worker) {
+        if (worker == null) return;
+        worker.close();
+        synchronized (PerlHandler.class) {
+            numWorkers--;
+        }
+    }
+
+    private static class Worker {
+        private final Process process;
+        private final BufferedWriter in;
+        private final BufferedReader out;
+
+        Worker() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder("perl", "-I.", "cps.pl", "-s", "-p",
+                    CodonPairScorer.DEFAULT_TABLE);
+            pb.directory(directory());
+            this.process = pb.start();
+            this.in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            this.out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        }
+
+        List<Double> score(List<String> genes) throws IOException, InterruptedException {
+            for (String gene : genes) {
+                in.write(gene);
+                in.newLine();
+            }
+            in.flush();
+            List<Double> scores = Lists.newArrayListWithCapacity(genes.size());
+            for (int i = 0; i < genes.size(); i++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Execution was cancelled.");
+                }
+                String line = out.readLine();
+                if (line == null) {
+                    throw new IOException("cps.pl exited while scoring genes.");
+                }
+                //Output: <number of pairs>|<score>|<score per pair>
+                String[] outSplit = line.split("\\|");
+                try {
+                    scores.add(outSplit.length == 3 ? Double.valueOf(outSplit[2]) : null);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected output from cps.pl: " + line, e);
                 }
-                br.close();
             }
-            temp.delete();
-        } catch (IOException e) {
-            e.printStackTrace();
-            temp.delete();
-            return null;
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            temp.delete();
-            return null;
+            return scores;
         }
 
-        if (plOutSB == null) {
-            temp.delete();
-            return null;
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+            process.destroy();
         }
-        String plOut = plOutSB.toString();
-        String[] outSplit = plOut.split("\\|");
-        return outSplit.length == 3 ? Double.valueOf(outSplit[2]) : null;
     }
 }
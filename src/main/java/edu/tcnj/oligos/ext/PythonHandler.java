@@ -1,12 +1,11 @@
 package edu.tcnj.oligos.ext;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Ints;
 import edu.tcnj.oligos.data.AminoAcid;
+import edu.tcnj.oligos.design.DesignSolver;
 import edu.tcnj.oligos.library.Design;
 import edu.tcnj.oligos.library.Fragment;
 
@@ -16,9 +15,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -96,7 +92,7 @@ public class PythonHandler {
             //Figure out the number of oligos needed for one delta step
             double delta = (max - min) / (numpts - 1) * numGlobalOccurrences;
             //For the given acid, figure out the design/deltas that optimally fit the data
-            designs.put(entry.getKey(), calculateDesign(numpts, delta, entry.getValue()));
+            designs.put(entry.getKey(), DesignSolver.calculateDesign(numpts, delta, entry.getValue()));
             i++;
         }
         return designs;
@@ -170,99 +166,4 @@ public class PythonHandler {
         return resList;
     }
 
-    //Helper method used in calculateDesign;
-    //designs are calculated based on the prime factors of the number of regions
-    private static List<Integer> primeFactors(int number) {
-        int n = number;
-        List<Integer> factors = new ArrayList<>();
-        for (int i = 2; i <= n; i++) {
-            while (n % i == 0) {
-                factors.add(i);
-                n /= i;
-            }
-        }
-        return factors;
-    }
-
-    //Comparator used for calculateDesign; the map needs to be sorted in ascending order
-    //according to the number of occurrences (as the delta ranges are made from smallest to largest)
-    private static Comparator<Map.Entry<Fragment.Range, Integer>> rangeComparator = new Comparator<Map.Entry<Fragment.Range, Integer>>() {
-        @Override
-        public int compare(Map.Entry<Fragment.Range, Integer> r1, Map.Entry<Fragment.Range, Integer> r2) {
-            return r1.getValue().compareTo(r2.getValue());
-        }
-    };
-
-    private static Design calculateDesign(int numpts, double delta, Map<Fragment.Range, Integer> numInRegion) {
-        //List of ranges, to be ordered by numOccurrences
-        List<Map.Entry<Fragment.Range, Integer>> ranges = Lists.newArrayList(numInRegion.entrySet());
-
-        //When the delta lists are made, the first delta list has a smaller max than the second delta list, etc.
-        //So, the ranges should be sorted according to the number of occurrences in order to make sure the delta
-        //lists correspond to  the proper ranges.
-        Collections.sort(ranges, rangeComparator);
-
-        List<Integer> factorList = primeFactors(numpts);
-        double bestOver = Double.POSITIVE_INFINITY;
-        Map<Fragment.Range, List<Integer>> bestDesign = Maps.newHashMap();
-        //Try every possible design (every distinct permutation of the prime factors)
-        for (List<Integer> factors : Collections2.orderedPermutations(factorList)) {
-            Map<Fragment.Range, List<Integer>> levelsForRange = new HashMap<>();
-            int stepSize = 1;
-            double amtOver = 0;
-            //For every factor: compute the corresponding delta levels
-            for (int i = 0; i < factors.size(); i++) {
-                int factor = factors.get(i);
-
-                Fragment.Range range = ranges.get(i).getKey();
-                Integer numOccurrences = ranges.get(i).getValue();
-
-                List<Integer> deltas = new ArrayList<>();
-                //Compute the delta levels
-                for (int j = 0; j < factor * stepSize; j += stepSize) {
-                    deltas.add(j);
-                }
-                //See how far the exact max is over the max available (for comparing designs; the farther the
-                //max available is under the exact max, the worse the design can approximate that level).
-
-                //deltas.get(deltas.size() - 1) is the max number of deltas needed in this fragment.
-                //That times delta gives the max number of occurrences of the acid needed in this fragment.
-                double maxNeeded = delta * deltas.get(deltas.size() - 1);
-                double diff = maxNeeded - numOccurrences;
-                //If there aren't enough occurrences in the region (diff > 0), track how far off the num occurrences is.
-                if (diff > 0) {
-                    amtOver += diff;
-                }
-                //Increase the stepSize according to the methods described in the paper
-                stepSize *= factor;
-                //Add the deltas for this factor to its corresponding range
-                levelsForRange.put(range, deltas);
-            }
-            //Track the best design found so far
-            if (amtOver < bestOver) {
-                bestOver = amtOver;
-                bestDesign = levelsForRange;
-            }
-        }
-
-        //Given the best design, convert that into the deltasForRange needed for a Design object
-        Map<Fragment.Range, List<Integer>> deltasForRange = new HashMap<>();
-        for (Map.Entry<Fragment.Range, List<Integer>> entry : bestDesign.entrySet()) {
-            //Get the max number possible to cap the approximations
-            int max = numInRegion.get(entry.getKey());
-            List<Integer> theseCounts = new ArrayList<>();
-            //for every delta level, get the best whole-number approximate that is <= max
-            for (int level : entry.getValue()) {
-                double exactNeeded = level * delta;
-                int approximateNeeded = (int) (exactNeeded + 0.5);
-                if (approximateNeeded > max) {
-                    approximateNeeded = max;
-                }
-                theseCounts.add(approximateNeeded);
-            }
-            deltasForRange.put(entry.getKey(), theseCounts);
-        }
-        return new Design(deltasForRange);
-    }
-
 }
\ No newline at end of file
@@ -1,74 +1,236 @@
 package edu.tcnj.oligos.library;
 
-import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 import edu.tcnj.oligos.data.Base;
 
 import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A list of bases, stored packed as their 4-bit masks (one byte per base)
+ * so that matching two bases is a single bitwise and. When every base is one of A, C, G or T,
+ * the sequence is also kept 2 bits per base in longs, so that counting differences between
+ * two sequences is an xor and a bit count per 32 bases.
+ */
 public class BaseSequence extends AbstractList<Base> {
 
-    private List<Base> sequence;
+    //Base masks (see Base#getMask); only the first 'length' entries are in use
+    private byte[] masks;
+    private int length;
+    //2 bits per base (see #code), 32 bases per word; null until needed or after an insert/remove,
+    //UNPACKABLE if some base is not A, C, G or T. Bits past the last base are always 0.
+    private long[] packed;
+    private static final long[] UNPACKABLE = new long[0];
+    private static final long LOW_BITS = 0x5555555555555555L;
 
     public BaseSequence(List<Base> sequence) {
-        this.sequence = sequence;
+        this.masks = new byte[sequence.size()];
+        this.length = masks.length;
+        int i = 0;
+        for (Base base : sequence) {
+            masks[i++] = (byte) base.getMask();
+        }
+    }
+
+    BaseSequence(byte[] masks, int length) {
+        this.masks = masks;
+        this.length = length;
     }
 
     public int posOfMatch(BaseSequence other) {
-        for (int i = 0; i < this.sequence.size(); i++) {
-            for (int j = 0; j < other.sequence.size(); j++) {
-                if (i + j >= this.sequence.size()) return -1;
-                if (this.get(i + j).matches(other.get(j))) {
-                    if (j == other.sequence.size() - 1) {
-                        return i;
-                    }
-                } else {
+        byte[] pattern = other.masks;
+        int patternLength = other.length;
+        if (patternLength == 0) return -1;
+        for (int i = 0; i + patternLength <= length; i++) {
+            int j = 0;
+            while (j < patternLength && (masks[i + j] & pattern[j]) != 0) {
+                j++;
+            }
+            if (j == patternLength) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determine whether the pattern matches this sequence starting at the given position
+     */
+    public boolean matchesAt(BaseSequence pattern, int pos) {
+        if (pos < 0 || pos + pattern.length > length) return false;
+        for (int j = 0; j < pattern.length; j++) {
+            if ((masks[pos + j] & pattern.masks[j]) == 0) return false;
+        }
+        return true;
+    }
+
+    //Build a new sequence of first[firstFrom, firstTo) followed by second[secondFrom, secondTo)
+    static BaseSequence join(BaseSequence first, int firstFrom, int firstTo,
+                             BaseSequence second, int secondFrom, int secondTo) {
+        checkPositionIndexes(firstFrom, firstTo, first.length);
+        checkPositionIndexes(secondFrom, secondTo, second.length);
+        byte[] joined = new byte[(firstTo - firstFrom) + (secondTo - secondFrom)];
+        System.arraycopy(first.masks, firstFrom, joined, 0, firstTo - firstFrom);
+        System.arraycopy(second.masks, secondFrom, joined, firstTo - firstFrom, secondTo - secondFrom);
+        return new BaseSequence(joined, joined.length);
+    }
+
+    int getMask(int index) {
+        checkElementIndex(index, length);
+        return masks[index];
+    }
+
+    //The masks of bases [from, to) as a string, for use as a hash key
+    String maskKey(int from, int to) {
+        checkPositionIndexes(from, to, length);
+        char[] key = new char[to - from];
+        for (int i = from; i < to; i++) {
+            key[i - from] = (char) masks[i];
+        }
+        return new String(key);
+    }
+
+    void setMask(int index, int mask) {
+        checkElementIndex(index, length);
+        masks[index] = (byte) mask;
+        updatePacked(index, mask);
+    }
+
+    //The 2-bit code of a concrete base's mask (A=0, C=1, G=2, T=3), or -1 for any other mask
+    private static int code(int mask) {
+        switch (mask) {
+            case 0x1: return 0;
+            case 0x2: return 1;
+            case 0x4: return 2;
+            case 0x8: return 3;
+            default: return -1;
+        }
+    }
+
+    //Keep the packed words in sync with a changed base, or drop them to be rebuilt when next needed
+    private void updatePacked(int index, int mask) {
+        int code = code(mask);
+        if (packed == null || packed == UNPACKABLE || code < 0) {
+            packed = null;
+            return;
+        }
+        int shift = 2 * (index % 32);
+        packed[index / 32] = (packed[index / 32] & ~(3L << shift)) | ((long) code << shift);
+    }
+
+    //The packed words, or null if some base is not A, C, G or T
+    private long[] packed() {
+        if (packed == null) {
+            long[] words = new long[(length + 31) / 32];
+            for (int i = 0; i < length; i++) {
+                int code = code(masks[i]);
+                if (code < 0) {
+                    words = UNPACKABLE;
                     break;
                 }
+                words[i / 32] |= (long) code << (2 * (i % 32));
             }
+            packed = words;
         }
-        return -1;
+        return packed == UNPACKABLE ? null : packed;
     }
 
     //Operations on the underlying list
     @Override
     public int size() {
-        return sequence.size();
+        return length;
     }
 
     @Override
     public Base set(int index, Base element) {
-        return sequence.set(index, element);
+        checkElementIndex(index, length);
+        Base prev = Base.fromMask(masks[index]);
+        masks[index] = (byte) element.getMask();
+        updatePacked(index, element.getMask());
+        return prev;
     }
 
     @Override
     public void add(int index, Base element) {
-        sequence.add(index, element);
+        checkPositionIndex(index, length);
+        if (length == masks.length) {
+            masks = Arrays.copyOf(masks, Math.max(8, length * 2));
+        }
+        System.arraycopy(masks, index, masks, index + 1, length - index);
+        masks[index] = (byte) element.getMask();
+        length++;
+        packed = null;
     }
 
     @Override
     public Base remove(int index) {
-        return sequence.remove(index);
+        checkElementIndex(index, length);
+        Base prev = Base.fromMask(masks[index]);
+        System.arraycopy(masks, index + 1, masks, index, length - index - 1);
+        length--;
+        packed = null;
+        return prev;
     }
 
     @Override
     public Base get(int i) {
-        return sequence.get(i);
+        return Base.fromMask(getMask(i));
     }
 
     @Override
     public BaseSequence subList(int fromIndex, int toIndex) {
-        return new BaseSequence(Lists.newArrayList(sequence.subList(fromIndex, toIndex)));
+        checkPositionIndexes(fromIndex, toIndex, length);
+        return new BaseSequence(Arrays.copyOfRange(masks, fromIndex, toIndex), toIndex - fromIndex);
     }
 
     @Override
     public String toString() {
-        return Joiner.on("").join(sequence);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(Base.fromMask(masks[i]));
+        }
+        return sb.toString();
     }
 
     public static int numDifferences(BaseSequence seq1, BaseSequence seq2) {
-        return numDifferences(seq1, 0, seq1.size(), seq2, 0, seq2.size());
+        return numDifferences(seq1, seq2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Count the differences between two sequences (mismatched bases plus the difference in length),
+     * stopping early once there are at least a given number
+     *
+     * @param limit the count at which to stop
+     * @return the number of differences if under the limit; otherwise some number at least the limit
+     */
+    public static int numDifferences(BaseSequence seq1, BaseSequence seq2, int limit) {
+        int length = Math.min(seq1.length, seq2.length);
+        int numDifferences = Math.max(seq1.length, seq2.length) - length;
+        long[] words1 = seq1.packed();
+        long[] words2 = words1 == null ? null : seq2.packed();
+        if (words2 == null) {
+            for (int i = 0; i < length && numDifferences < limit; i++) {
+                if (seq1.masks[i] != seq2.masks[i]) {
+                    numDifferences++;
+                }
+            }
+            return numDifferences;
+        }
+        for (int w = 0; w * 32 < length && numDifferences < limit; w++) {
+            long diff = words1[w] ^ words2[w];
+            //One bit per base that differs in either of its 2 bits
+            diff = (diff | (diff >>> 1)) & LOW_BITS;
+            int basesLeft = length - w * 32;
+            if (basesLeft < 32) {
+                diff &= (1L << (2 * basesLeft)) - 1;
+            }
+            numDifferences += Long.bitCount(diff);
+        }
+        return numDifferences;
     }
     public static int numDifferences(BaseSequence seq1, int start1, int end1, BaseSequence seq2, int start2, int end2) {
         int numDifferences;
@@ -81,7 +243,7 @@ public class BaseSequence extends AbstractList<Base> {
             numDifferences = (end2 - start2) - length;
         }
         for (int i = 0; i < length; i++) {
-            if (seq1.get(start1 + i) != seq2.get(start2 + i)) {
+            if (seq1.masks[start1 + i] != seq2.masks[start2 + i]) {
                 numDifferences++;
             }
         }
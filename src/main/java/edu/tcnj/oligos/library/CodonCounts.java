@@ -0,0 +1,70 @@
+package edu.tcnj.oligos.library;
+
+import edu.tcnj.oligos.data.Codon;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the codons of genes by the oligos they are assembled from. A gene holds all of its first oligo,
+ * and every later oligo from the end of its overlap on; each oligo's count vector (indexed by codon
+ * ordinal) over those spans is computed once and cached, so counting a gene is a sum over its path.
+ * Not thread-safe.
+ */
+class CodonCounts {
+    private static final int NUM_CODONS = Codon.values().length;
+
+    private final int overlapLength;
+    //Per oligo: the counts over the whole oligo, then over the part after the overlap
+    private final Map<Oligo, int[][]> counts = new IdentityHashMap<>();
+
+    CodonCounts(int overlapLength) {
+        this.overlapLength = overlapLength;
+    }
+
+    /**
+     * Count the codons of the gene assembled from a path of oligos
+     *
+     * @param path one oligo per position, as from {@link GeneIterator#getPath()}
+     * @return the number of each codon in the gene, indexed by ordinal
+     */
+    int[] count(List<Oligo> path) {
+        int[] total = new int[NUM_CODONS];
+        for (int i = 0; i < path.size(); i++) {
+            int[] here = getCounts(path.get(i))[i == 0 ? 0 : 1];
+            for (int c = 0; c < NUM_CODONS; c++) {
+                total[c] += here[c];
+            }
+        }
+        return total;
+    }
+
+    private int[][] getCounts(Oligo oligo) {
+        int[][] oligoCounts = counts.get(oligo);
+        if (oligoCounts == null) {
+            int[] prefix = count(oligo, 0, Math.min(overlapLength, oligo.size()));
+            int[] rest = count(oligo, Math.min(overlapLength, oligo.size()), oligo.size());
+            int[] all = rest.clone();
+            for (int c = 0; c < NUM_CODONS; c++) {
+                all[c] += prefix[c];
+            }
+            oligoCounts = new int[][]{all, rest};
+            counts.put(oligo, oligoCounts);
+        }
+        return oligoCounts;
+    }
+
+    /**
+     * Count the codons of part of a sequence
+     *
+     * @return the number of each codon in [from, to), indexed by ordinal
+     */
+    static int[] count(Sequence seq, int from, int to) {
+        int[] counts = new int[NUM_CODONS];
+        for (int i = from; i < to; i++) {
+            counts[seq.getOrdinal(i)]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,149 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import edu.tcnj.oligos.data.Codon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Computes codon pair scores the way cps.pl does, from a table of codon pair counts loaded once.
+ * Each line of the table holds an amino acid pair, a codon pair, an expected count (unused) and an
+ * observed count. The value of a codon pair is the log of its observed count (with Jeffreys-Perks
+ * discounting) over the count expected from its codon and amino acid frequencies; the score of a
+ * gene is the mean value over its adjacent codon pairs that are in the table.
+ */
+public class CodonPairScorer {
+    public static final String DEFAULT_TABLE = "e.coli.k12.codon_pair_info.expected";
+
+    private static final Pattern LINE = Pattern.compile("^(\\S+)\\s+(\\S+)\\s+(\\S+)\\s+(\\S+)");
+    private static final int NUM_CODONS = Codon.values().length;
+
+    //values[first.ordinal() * NUM_CODONS + second.ordinal()]; NaN for pairs not in the table
+    private final double[] values;
+
+    private CodonPairScorer(double[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Load the table from cps.pl's default codon pair file in the working directory
+     *
+     * @return the scorer, or null if the file could not be read
+     */
+    public static CodonPairScorer getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        private static final CodonPairScorer INSTANCE = loadDefault();
+
+        private static CodonPairScorer loadDefault() {
+            File table = new File(DEFAULT_TABLE);
+            if (!table.exists()) {
+                System.out.println("Codon pair table not found. Codon pair scores will be unknown.");
+                return null;
+            }
+            try {
+                return fromFile(table);
+            } catch (IOException | IllegalArgumentException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    public static CodonPairScorer fromFile(File file) throws IOException {
+        return fromLines(Files.readLines(file, Charsets.UTF_8));
+    }
+
+    static CodonPairScorer fromLines(List<String> lines) {
+        //Codon pairs in the order they are first seen, with the last acid pair and count given for each
+        Map<Integer, String> acidPairs = Maps.newLinkedHashMap();
+        Map<Integer, Double> counts = Maps.newHashMap();
+        Map<String, Double> acidPairFreq = Maps.newHashMap();
+        Map<Character, Double> acidFreq = Maps.newHashMap();
+        double[] codonFreq = new double[NUM_CODONS];
+        double totalPairs = 0;
+        for (String line : lines) {
+            Matcher m = LINE.matcher(line);
+            if (!m.find()) continue;
+            String acidPair = m.group(1);
+            String codonPair = m.group(2);
+            checkArgument(acidPair.length() == 2 && codonPair.length() == 6, "Bad codon pair line: %s", line);
+            Codon first = Codon.valueOf(codonPair.substring(0, 3));
+            Codon second = Codon.valueOf(codonPair.substring(3, 6));
+            double count = Double.parseDouble(m.group(4));
+            totalPairs += count;
+
+            int pair = first.ordinal() * NUM_CODONS + second.ordinal();
+            acidPairs.put(pair, acidPair);
+            counts.put(pair, count);
+            add(acidPairFreq, acidPair, count);
+            codonFreq[first.ordinal()] += count / 2;
+            codonFreq[second.ordinal()] += count / 2;
+            add(acidFreq, acidPair.charAt(0), count / 2);
+            add(acidFreq, acidPair.charAt(1), count / 2);
+        }
+
+        //Jeffreys-Perks law constants, for 4^6 possible codon pairs
+        double halfPossible = 4096 / 2;
+        double jpFactor = totalPairs / (totalPairs + halfPossible);
+        double jpSummand = 1 / (2 * (totalPairs + halfPossible));
+
+        double[] values = new double[NUM_CODONS * NUM_CODONS];
+        Arrays.fill(values, Double.NaN);
+        for (Map.Entry<Integer, String> entry : acidPairs.entrySet()) {
+            int pair = entry.getKey();
+            String acidPair = entry.getValue();
+            double num = counts.get(pair) * jpFactor + jpSummand;
+            double expected = (codonFreq[pair / NUM_CODONS] / acidFreq.get(acidPair.charAt(0)))
+                    * (codonFreq[pair % NUM_CODONS] / acidFreq.get(acidPair.charAt(1)))
+                    * acidPairFreq.get(acidPair);
+            values[pair] = Math.log(num / expected);
+        }
+        return new CodonPairScorer(values);
+    }
+
+    private static <K> void add(Map<K, Double> map, K key, double amount) {
+        Double current = map.get(key);
+        map.put(key, current == null ? amount : current + amount);
+    }
+
+    /**
+     * The value of one codon pair
+     *
+     * @return the value, or NaN if the pair is not in the table
+     */
+    public double getValue(Codon first, Codon second) {
+        return values[first.ordinal() * NUM_CODONS + second.ordinal()];
+    }
+
+    /**
+     * Score a gene in one pass over its codons; pairs not in the table (e.g. with a stop codon) are skipped
+     *
+     * @param gene the gene to score
+     * @return the codon pair score divided by the number of pairs scored, or null if no pair could be scored
+     */
+    public Double score(Sequence gene) {
+        double sum = 0;
+        int pairs = 0;
+        for (int i = 0; i + 1 < gene.size(); i++) {
+            double value = values[gene.getOrdinal(i) * NUM_CODONS + gene.getOrdinal(i + 1)];
+            if (!Double.isNaN(value)) {
+                sum += value;
+                pairs++;
+            }
+        }
+        return pairs == 0 ? null : sum / pairs;
+    }
+}
@@ -0,0 +1,182 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.Codon;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Searches for an arrangement of a fixed multiset of codons over a set of spots
+ * such that no restriction site appears, within a budget of attempts
+ * (each attempt being one arrangement that is checked for restriction sites).
+ * The nearest-site search never checks an arrangement twice, so it also stops once it has ruled them all out.
+ */
+public class FillEngine {
+    public static final int DEFAULT_MAX_ATTEMPTS = 10000;
+
+    public enum Strategy {
+        /**
+         * Try independent random arrangements until one has no restriction sites
+         */
+        RANDOM_RESTART,
+        /**
+         * Search depth-first over the distinct arrangements, changing the codons in the site found first;
+         * gives up once every arrangement has been ruled out
+         */
+        NEAREST_SITE
+    }
+
+    /**
+     * What is being filled: the codons are placed with set, and findRestriction reports a remaining site
+     */
+    interface Target {
+        void set(int index, Codon codon);
+
+        /**
+         * @return the first and last index (inclusive) of the codons a restriction site touches,
+         * or null if there is no restriction site
+         */
+        int[] findRestriction();
+    }
+
+    private final Strategy strategy;
+    private final int maxAttempts;
+    private final Random random;
+
+    public FillEngine(Strategy strategy, int maxAttempts) {
+        this(strategy, maxAttempts, new Random());
+    }
+
+    FillEngine(Strategy strategy, int maxAttempts, Random random) {
+        checkArgument(maxAttempts > 0, "Need at least one attempt to fill");
+        this.strategy = checkNotNull(strategy);
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Place the codons in the spots of the target so that it has no restriction sites
+     *
+     * @param target the sequence being filled
+     * @param spots  the indices to be filled
+     * @param codons the codons to put in those spots, in any order
+     * @return the number of attempts it took, or -1 if the budget ran out (or every arrangement was tried)
+     */
+    int fill(Target target, List<Integer> spots, List<Codon> codons) {
+        checkArgument(spots.size() == codons.size());
+        List<Codon> arrangement = Lists.newArrayList(codons);
+        restart(target, spots, arrangement);
+        if (strategy == Strategy.NEAREST_SITE) {
+            return new Search(target, spots, arrangement).run();
+        }
+        //With at most one distinct codon there is only one arrangement to try
+        boolean rearrangeable = new HashSet<>(codons).size() > 1;
+        for (int attempts = 1; ; attempts++) {
+            LibraryUtils.checkInterrupt();
+            if (target.findRestriction() == null) return attempts;
+            if (attempts >= maxAttempts || !rearrangeable) return -1;
+            restart(target, spots, arrangement);
+        }
+    }
+
+    private void restart(Target target, List<Integer> spots, List<Codon> arrangement) {
+        Collections.shuffle(arrangement, random);
+        for (int i = 0; i < spots.size(); i++) {
+            target.set(spots.get(i), arrangement.get(i));
+        }
+    }
+
+    /**
+     * A depth-first search over the distinct arrangements, starting from a random one. Each node fixes the
+     * codon of the free spot nearest the site its arrangement has, keeping the codon already there first and
+     * then trying each other codon left among the free spots (by swapping it in). The free spots always hold
+     * the codons left, so every arrangement checked is a different one; a site touching no free spot can't
+     * be removed below that node, so the search backtracks.
+     */
+    private class Search {
+        private final Target target;
+        private final List<Integer> spots;
+        private final List<Codon> arrangement;
+        private final boolean[] fixed;
+        private int attempts = 0;
+
+        Search(Target target, List<Integer> spots, List<Codon> arrangement) {
+            this.target = target;
+            this.spots = spots;
+            this.arrangement = arrangement;
+            this.fixed = new boolean[spots.size()];
+        }
+
+        int run() {
+            int[] site = check();
+            if (site == null) return attempts;
+            return search(site) ? attempts : -1;
+        }
+
+        private int[] check() {
+            LibraryUtils.checkInterrupt();
+            attempts++;
+            return target.findRestriction();
+        }
+
+        //Search below a node whose arrangement has the given site; returns whether a clean one was found,
+        //and otherwise leaves the arrangement as it was
+        private boolean search(int[] site) {
+            int chosen = nearestFree(site);
+            if (chosen < 0) return false;
+            fixed[chosen] = true;
+            //Keeping the codon there gives the same arrangement, and the same site
+            if (search(site)) return true;
+
+            //Each other codon left, swapped in from the first free spot holding it
+            List<Integer> partners = Lists.newArrayList();
+            Set<Codon> seen = EnumSet.of(arrangement.get(chosen));
+            for (int i = 0; i < spots.size(); i++) {
+                if (!fixed[i] && seen.add(arrangement.get(i))) partners.add(i);
+            }
+            Collections.shuffle(partners, random);
+            for (int partner : partners) {
+                if (attempts >= maxAttempts) break;
+                swap(chosen, partner);
+                int[] next = check();
+                if (next == null || search(next)) return true;
+                swap(chosen, partner);
+            }
+            fixed[chosen] = false;
+            return false;
+        }
+
+        //The free spot nearest the site, if the site touches one
+        private int nearestFree(int[] site) {
+            for (int i = 0; i < spots.size(); i++) {
+                int spot = spots.get(i);
+                if (!fixed[i] && spot >= site[0] && spot <= site[1]) return i;
+            }
+            return -1;
+        }
+
+        private void swap(int i, int j) {
+            Codon temp = arrangement.get(i);
+            arrangement.set(i, arrangement.get(j));
+            arrangement.set(j, temp);
+            target.set(spots.get(i), arrangement.get(i));
+            target.set(spots.get(j), arrangement.get(j));
+        }
+    }
+}
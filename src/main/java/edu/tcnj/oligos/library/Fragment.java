@@ -1,13 +1,11 @@
 package edu.tcnj.oligos.library;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import edu.tcnj.oligos.data.AminoAcid;
 import edu.tcnj.oligos.data.Codon;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -34,15 +32,20 @@ public class Fragment extends Sequence {
     private final Integer delta;
     private final Map<Integer, List<Oligo>> oligos;
     private final Map<Codon, Double> codonFreqs;
-    private final List<BaseSequence> restrictions;
+    private final RestrictionScanner scanner;
+    private final FillEngine fillEngine;
 
     public Map<Integer, List<Oligo>> getOligos() {
         return oligos;
     }
 
+    Codon getCodon() {
+        return codon;
+    }
+
     private Fragment(Sequence protein, Codon codon, Range range, Integer delta,
                      Map<Integer, List<Oligo>> oligos, int oligoLength, int overlapLength,
-                     int size, Map<Codon, Double> codonFreqs, List<BaseSequence> restrictions) {
+                     int size, Map<Codon, Double> codonFreqs, RestrictionScanner scanner, FillEngine fillEngine) {
         super(protein);
         this.codon = codon;
         this.range = range;
@@ -52,13 +55,15 @@ public class Fragment extends Sequence {
         this.overlapLength = overlapLength;
         this.size = size;
         this.codonFreqs = codonFreqs;
-        this.restrictions = restrictions;
+        this.scanner = scanner;
+        this.fillEngine = fillEngine;
     }
 
     @Override
-    public Codon set(int index, Codon elem) {
+    public int setOrdinal(int index, int ordinal) {
+        Codon elem = Codon.fromOrdinal(ordinal);
         checkArgument(elem.getAminoAcid() == codon.getAminoAcid());
-        Codon temp = elem;
+        int temp = ordinal;
         AminoAcid acid = elem.getAminoAcid();
         for (int i = range.getStartPosition(); i <= range.getEndPosition(); i++) {
             int offset = i - range.getStartPosition();
@@ -67,8 +72,8 @@ public class Fragment extends Sequence {
             int positionInOligo = index - startOfPositionI;
             if (0 <= positionInOligo && positionInOligo < oligoLength) {
                 for (Oligo oligo : oligos.get(i)) {
-                    temp = oligo.set(positionInOligo, elem);
-                    checkState(temp.getAminoAcid() == acid);
+                    temp = oligo.setOrdinal(positionInOligo, ordinal);
+                    checkState(Codon.fromOrdinal(temp).getAminoAcid() == acid);
                 }
             }
         }
@@ -79,42 +84,48 @@ public class Fragment extends Sequence {
      * Fills a fragment with delta of the codon of interest,
      * and proportional numbers of all other codons for that
      * acid (based on the frequency table built by the Library)
-     * arranged in random order
+     * arranged so that no restriction enzyme sites appear
+     * (searched for by the library's FillEngine)
      */
     void fill() {
         AminoAcid acid = codon.getAminoAcid();
         List<Integer> positionsOfInterest = Lists.newArrayList();
         int start = (range.getStartPosition() == 0 ? 0 : overlapLength);
-        int end = (range.getEndPosition() == size - 1 ? sequence.size() : sequence.size() - overlapLength);
+        int end = (range.getEndPosition() == size - 1 ? size() : size() - overlapLength);
         for (int i = start; i < end; i++) {
-            if (sequence.get(i).getAminoAcid() == acid) {
+            if (get(i).getAminoAcid() == acid) {
                 positionsOfInterest.add(i);
             }
         }
         Map<Codon, Integer> counts = LibraryUtils.findCodonCounts(codonFreqs, positionsOfInterest.size() - delta);
-        Collections.shuffle(positionsOfInterest);
-        Iterator<List<Integer>> perm = Collections2.permutations(positionsOfInterest).iterator();
-        do {
-            //Permute the positions and fill them; if this happened to
-            //make any restriction enzyme sites try a different permutation
-            if (!perm.hasNext()) {
-                throw new RuntimeException(new OutOfSwapsException(
-                        "Ran out of permutations when filling fragment: " + this));
+        List<Codon> codons = Lists.newArrayListWithCapacity(positionsOfInterest.size());
+        for (int i = 0; i < delta; i++) {
+            codons.add(codon);
+        }
+        for (Map.Entry<Codon, Integer> entry : counts.entrySet()) {
+            for (int j = 0; j < entry.getValue(); j++) {
+                codons.add(entry.getKey());
             }
-            positionsOfInterest = perm.next();
-            for (int i = 0; i < delta; i++) {
-                set(positionsOfInterest.get(i), codon);
+        }
+
+        int attempts = fillEngine.fill(new FillEngine.Target() {
+            @Override
+            public void set(int index, Codon codon) {
+                Fragment.this.set(index, codon);
             }
-            int index = delta;
-            for (Map.Entry<Codon, Integer> entry : counts.entrySet()) {
-                for (int j = 0; j < entry.getValue(); j++) {
-                    set(positionsOfInterest.get(index), entry.getKey());
-                    index++;
-                }
+
+            @Override
+            public int[] findRestriction() {
+                RestrictionScanner.Hit hit = LibraryUtils.findRestrictionEnzyme(range, oligos, overlapLength, scanner);
+                if (hit == null) return null;
+                int siteLength = scanner.getRestrictions().get(hit.getRestriction()).size();
+                return new int[]{hit.getPosition() / 3, (hit.getPosition() + siteLength - 1) / 3};
             }
+        }, positionsOfInterest, codons);
+        if (attempts == -1) {
+            throw new RuntimeException(new OutOfSwapsException(
+                    "Ran out of attempts when filling fragment: " + this));
         }
-        while (LibraryUtils.containsRestrictionEnzyme(
-                LibraryUtils.buildPermutations(range, oligos, oligoLength, overlapLength), restrictions));
     }
 
     @Override
@@ -202,12 +213,14 @@ public class Fragment extends Sequence {
         private final int overlapLength;
         private final int size;
         private final Map<AminoAcid, Map<Codon, Double>> codonFrequencies;
-        private final List<BaseSequence> restrictions;
+        private final RestrictionScanner scanner;
+        private final FillEngine fillEngine;
 
         //Constructs the iterator and sets up the first fragment's info
         FragmentIterator(Map<Codon, Design> designs, Map<Integer, List<Oligo>> oligos, Protein protein,
                          int oligoLength, int overlapLength, int size,
-                         Map<AminoAcid, Map<Codon, Double>> codonFrequencies, List<BaseSequence> restrictions) {
+                         Map<AminoAcid, Map<Codon, Double>> codonFrequencies, RestrictionScanner scanner,
+                         FillEngine fillEngine) {
             this.designs = designs.entrySet().iterator();
             checkState(this.designs.hasNext());
             Map.Entry<Codon, Design> firstDesign = this.designs.next();
@@ -228,7 +241,8 @@ public class Fragment extends Sequence {
             this.size = size;
 
             this.codonFrequencies = codonFrequencies;
-            this.restrictions = restrictions;
+            this.scanner = scanner;
+            this.fillEngine = fillEngine;
         }
 
         @Override
@@ -270,7 +284,7 @@ public class Fragment extends Sequence {
 
             return new Fragment(range.subSequence(protein, oligoLength, overlapLength), codon, range, delta,
                     filter(oligos, range, codon, delta), oligoLength, overlapLength, size,
-                    codonFrequencies.get(codon.getAminoAcid()), restrictions);
+                    codonFrequencies.get(codon.getAminoAcid()), scanner, fillEngine);
         }
 
         @Override
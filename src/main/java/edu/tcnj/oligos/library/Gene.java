@@ -1,14 +1,19 @@
 package edu.tcnj.oligos.library;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import edu.tcnj.oligos.data.AminoAcid;
 import edu.tcnj.oligos.data.Codon;
 import edu.tcnj.oligos.ext.PerlHandler;
 
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class Gene extends Sequence {
+    public static final String CPS_SCORER_PROPERTY = "oligoDesigner.cpsScorer";
+
     private Map<AminoAcid, Map<Codon, Double>> freqs;
     private Double codonPairScore;
 
@@ -23,30 +28,99 @@ public class Gene extends Sequence {
     }
 
     public static Gene fromSequence(Sequence gene, Map<AminoAcid, Codon> coi) {
-        Map<AminoAcid, Map<Codon, Integer>> counts = Maps.newHashMap();
-        for (AminoAcid acid : coi.keySet()) {
-            counts.put(acid, Maps.<Codon, Integer>newHashMap());
+        Double cps;
+        if (usePerlScorer()) {
+            cps = PerlHandler.getCodonPairScore(gene.toString());
+        } else {
+            CodonPairScorer scorer = CodonPairScorer.getDefault();
+            cps = scorer == null ? null : scorer.score(gene);
         }
-        for (Codon codon : gene) {
-            AminoAcid acid = codon.getAminoAcid();
-            if (coi.containsKey(acid)) {
-                Map<Codon, Integer> codonMap = counts.get(acid);
-                if (codonMap.containsKey(codon)) {
-                    codonMap.put(codon, codonMap.get(codon) + 1);
-                } else {
-                    codonMap.put(codon, 1);
-                }
+        return new Gene(gene, computeFreqs(gene, coi), cps);
+    }
+
+    /**
+     * Build genes from sequences; when cps.pl is used for scoring, the genes are sent to it in one batch
+     */
+    public static List<Gene> fromSequences(Iterator<? extends Sequence> genes, Map<AminoAcid, Codon> coi) {
+        List<Gene> result = Lists.newArrayList();
+        if (!usePerlScorer()) {
+            while (genes.hasNext()) {
+                result.add(fromSequence(genes.next(), coi));
             }
+            return result;
+        }
+        List<Sequence> sequences = Lists.newArrayList(genes);
+        List<String> geneStrings = Lists.newArrayListWithCapacity(sequences.size());
+        for (Sequence gene : sequences) {
+            geneStrings.add(gene.toString());
+        }
+        List<Double> scores = PerlHandler.getCodonPairScores(geneStrings);
+        for (int i = 0; i < sequences.size(); i++) {
+            result.add(new Gene(sequences.get(i), computeFreqs(sequences.get(i), coi), scores.get(i)));
         }
+        return result;
+    }
+
+    /**
+     * Build every gene that can be assembled from the oligos in a range, in {@link GeneIterator} order.
+     * Codon pair scores and codon counts are summed from each oligo's (cached) share of the gene,
+     * rather than walking every full gene.
+     *
+     * @param range         the range of oligo positions to assemble (inclusive)
+     * @param oligos        the oligos at each position
+     * @param overlapLength the length of an overlap
+     * @param coi           the codons of interest, by amino acid
+     * @return the genes
+     */
+    public static List<Gene> fromOligos(Fragment.Range range, Map<Integer, List<Oligo>> oligos, int overlapLength,
+                                        Map<AminoAcid, Codon> coi) {
+        GeneIterator it = new GeneIterator(range, oligos, overlapLength);
+        if (usePerlScorer()) {
+            return fromSequences(it, coi);
+        }
+        CodonPairScorer scorer = CodonPairScorer.getDefault();
+        PathScorer pathScorer = scorer == null ? null : new PathScorer(scorer, overlapLength);
+        CodonCounts codonCounts = new CodonCounts(overlapLength);
+        List<Gene> genes = Lists.newArrayList();
+        while (it.hasNext()) {
+            Sequence gene = it.next();
+            List<Oligo> path = it.getPath();
+            Double cps = pathScorer == null ? null : pathScorer.score(path);
+            genes.add(new Gene(gene, computeFreqs(codonCounts.count(path), coi), cps));
+        }
+        return genes;
+    }
+
+    //The gene assembled from a path of oligos
+    static Gene fromPath(List<Oligo> path, int overlapLength, Map<AminoAcid, Codon> coi, Double cps) {
+        Sequence gene = Sequence.concat(path, overlapLength);
+        return new Gene(gene, computeFreqs(gene, coi), cps);
+    }
+
+    //Codon pair scores come from cps.pl instead of the built-in scorer when -DoligoDesigner.cpsScorer=perl
+    private static boolean usePerlScorer() {
+        return "perl".equals(System.getProperty(CPS_SCORER_PROPERTY));
+    }
+
+    private static Map<AminoAcid, Map<Codon, Double>> computeFreqs(Sequence gene, Map<AminoAcid, Codon> coi) {
+        return computeFreqs(CodonCounts.count(gene, 0, gene.size()), coi);
+    }
+
+    //Frequencies of each codon of interest's acid, from the number of each codon (by ordinal) in a gene
+    private static Map<AminoAcid, Map<Codon, Double>> computeFreqs(int[] counts, Map<AminoAcid, Codon> coi) {
         Map<AminoAcid, Map<Codon, Double>> freqs = Maps.newHashMap();
-        for (Map.Entry<AminoAcid, Map<Codon, Integer>> acidEntry : counts.entrySet()) {
-            freqs.put(acidEntry.getKey(), Maps.<Codon, Double>newHashMap());
-            double totalForAcid = 0;
-            for (Map.Entry<Codon, Integer> codonEntry : acidEntry.getValue().entrySet()) {
-                totalForAcid += codonEntry.getValue();
-            }
-            for (Map.Entry<Codon, Integer> codonEntry : acidEntry.getValue().entrySet()) {
-                freqs.get(acidEntry.getKey()).put(codonEntry.getKey(), codonEntry.getValue() / totalForAcid);
+        for (AminoAcid acid : coi.keySet()) {
+            freqs.put(acid, Maps.<Codon, Double>newHashMap());
+        }
+        int[] totalForAcid = new int[AminoAcid.values().length];
+        for (Codon codon : Codon.values()) {
+            totalForAcid[codon.getAminoAcid().ordinal()] += counts[codon.ordinal()];
+        }
+        for (Codon codon : Codon.values()) {
+            int count = counts[codon.ordinal()];
+            if (count > 0 && coi.containsKey(codon.getAminoAcid())) {
+                freqs.get(codon.getAminoAcid()).put(codon,
+                        count / (double) totalForAcid[codon.getAminoAcid().ordinal()]);
             }
         }
         for (Map.Entry<AminoAcid, Codon> entry : coi.entrySet()) {
@@ -54,8 +128,7 @@ public class Gene extends Sequence {
                 freqs.get(entry.getKey()).put(entry.getValue(), 0.0D);
             }
         }
-        Double cps = PerlHandler.getCodonPairScore(gene.toString());
-        return new Gene(gene, freqs, cps);
+        return freqs;
     }
 
     public Double getCPS() {
@@ -0,0 +1,138 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * The number of genes that can be assembled from the oligos in a range, and how many of them go through
+ * each oligo, computed without assembling any genes. Oligos at consecutive positions connect when they
+ * share an overlap, so the counts flow through one node per distinct overlap: the number of gene prefixes
+ * ending in an overlap is the sum over the oligos ending in it, and every oligo starting with that overlap
+ * continues all of those prefixes. Agrees with the number of sequences returned by a {@link GeneIterator}.
+ */
+public class GeneCount {
+    private final int start;
+    private final BigInteger total;
+    //fromStart[i][j]: partial genes ending with oligo j at the i-th position; toEnd[i][j]: partial genes starting there
+    private final BigInteger[][] fromStart;
+    private final BigInteger[][] toEnd;
+
+    private GeneCount(int start, BigInteger total, BigInteger[][] fromStart, BigInteger[][] toEnd) {
+        this.start = start;
+        this.total = total;
+        this.fromStart = fromStart;
+        this.toEnd = toEnd;
+    }
+
+    /**
+     * Count the genes assembled from the oligos in a range
+     *
+     * @param range         the range of oligo positions (inclusive)
+     * @param oligos        the oligos at each position
+     * @param overlapLength the length of an overlap
+     * @return the counts
+     */
+    static GeneCount count(Fragment.Range range, Map<Integer, List<Oligo>> oligos, int overlapLength) {
+        int start = range.getStartPosition();
+        int positions = range.getEndPosition() - start + 1;
+        BigInteger[][] fromStart = new BigInteger[positions][];
+        BigInteger[][] toEnd = new BigInteger[positions][];
+
+        fromStart[0] = ones(oligos.get(start).size());
+        for (int i = 1; i < positions; i++) {
+            LibraryUtils.checkInterrupt();
+            List<Oligo> pre = oligos.get(start + i - 1);
+            List<Oligo> post = oligos.get(start + i);
+            Map<String, BigInteger> byOverlap = Maps.newHashMap();
+            for (int j = 0; j < pre.size(); j++) {
+                Oligo oligo = pre.get(j);
+                add(byOverlap, LibraryUtils.overlapKey(oligo, oligo.size() - overlapLength, overlapLength),
+                        fromStart[i - 1][j]);
+            }
+            fromStart[i] = new BigInteger[post.size()];
+            for (int j = 0; j < post.size(); j++) {
+                fromStart[i][j] = get(byOverlap, LibraryUtils.overlapKey(post.get(j), 0, overlapLength));
+            }
+        }
+
+        toEnd[positions - 1] = ones(oligos.get(start + positions - 1).size());
+        for (int i = positions - 2; i >= 0; i--) {
+            LibraryUtils.checkInterrupt();
+            List<Oligo> pre = oligos.get(start + i);
+            List<Oligo> post = oligos.get(start + i + 1);
+            Map<String, BigInteger> byOverlap = Maps.newHashMap();
+            for (int j = 0; j < post.size(); j++) {
+                add(byOverlap, LibraryUtils.overlapKey(post.get(j), 0, overlapLength), toEnd[i + 1][j]);
+            }
+            toEnd[i] = new BigInteger[pre.size()];
+            for (int j = 0; j < pre.size(); j++) {
+                Oligo oligo = pre.get(j);
+                toEnd[i][j] = get(byOverlap,
+                        LibraryUtils.overlapKey(oligo, oligo.size() - overlapLength, overlapLength));
+            }
+        }
+
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger paths : fromStart[positions - 1]) {
+            total = total.add(paths);
+        }
+        return new GeneCount(start, total, fromStart, toEnd);
+    }
+
+    private static BigInteger[] ones(int length) {
+        BigInteger[] ones = new BigInteger[length];
+        for (int i = 0; i < length; i++) {
+            ones[i] = BigInteger.ONE;
+        }
+        return ones;
+    }
+
+    private static void add(Map<String, BigInteger> counts, String key, BigInteger value) {
+        counts.put(key, get(counts, key).add(value));
+    }
+
+    private static BigInteger get(Map<String, BigInteger> counts, String key) {
+        BigInteger value = counts.get(key);
+        return value == null ? BigInteger.ZERO : value;
+    }
+
+    /**
+     * @return the number of genes that can be assembled
+     */
+    public BigInteger getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the number of genes that use a given oligo
+     *
+     * @param pos   the oligo position
+     * @param index the index of the oligo among the oligos at that position
+     * @return the number of assembled genes containing that oligo
+     */
+    public BigInteger getGenesThrough(int pos, int index) {
+        checkElementIndex(pos - start, fromStart.length);
+        return fromStart[pos - start][index].multiply(toEnd[pos - start][index]);
+    }
+
+    /**
+     * Get the number of genes that use each oligo at a position
+     *
+     * @param pos the oligo position
+     * @return the number of assembled genes containing each oligo, in the order of the oligos at that position
+     */
+    public List<BigInteger> getGenesThrough(int pos) {
+        checkElementIndex(pos - start, fromStart.length);
+        List<BigInteger> counts = Lists.newArrayListWithCapacity(fromStart[pos - start].length);
+        for (int index = 0; index < fromStart[pos - start].length; index++) {
+            counts.add(getGenesThrough(pos, index));
+        }
+        return counts;
+    }
+}
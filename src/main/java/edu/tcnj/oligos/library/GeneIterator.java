@@ -0,0 +1,81 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lazily walks every way of assembling the oligos in a range into one sequence.
+ * Consecutive oligos can be assembled when the end of one matches the start of the next
+ * (their shared overlap); the walk is depth-first, so only one choice of oligo per
+ * position is held at a time, and callers can stop as soon as they have what they need.
+ * Sequences come out in the same order as {@link LibraryUtils#buildPermutations}.
+ */
+public class GeneIterator extends AbstractIterator<Sequence> {
+    private final int overlapLength;
+    private final List<List<Oligo>> oligos;
+    //choices[i] is the index of the oligo currently used at the i-th position of the range
+    private final int[] choices;
+    private int depth = -1;
+
+    /**
+     * @param range         the range of oligo positions to assemble (inclusive)
+     * @param oligos        the oligos at each position
+     * @param overlapLength the length of an overlap
+     */
+    public GeneIterator(Fragment.Range range, Map<Integer, List<Oligo>> oligos, int overlapLength) {
+        this.overlapLength = overlapLength;
+        this.oligos = Lists.newArrayList();
+        for (int pos = range.getStartPosition(); pos <= range.getEndPosition(); pos++) {
+            this.oligos.add(oligos.get(pos));
+        }
+        this.choices = new int[this.oligos.size()];
+    }
+
+    @Override
+    protected Sequence computeNext() {
+        if (depth == -1) {
+            //First call: start from the first oligo of the first position
+            depth = 0;
+        } else {
+            //Resume from the last complete path by moving past its final oligo
+            choices[depth]++;
+        }
+        while (depth >= 0) {
+            LibraryUtils.checkInterrupt();
+            List<Oligo> here = oligos.get(depth);
+            if (choices[depth] >= here.size()) {
+                //Every oligo at this position has been tried; backtrack
+                choices[depth] = 0;
+                depth--;
+                if (depth >= 0) choices[depth]++;
+                continue;
+            }
+            if (depth > 0 && !LibraryUtils.connects(oligos.get(depth - 1).get(choices[depth - 1]),
+                    here.get(choices[depth]), overlapLength)) {
+                choices[depth]++;
+                continue;
+            }
+            if (depth == choices.length - 1) {
+                return Sequence.concat(getPath(), overlapLength);
+            }
+            depth++;
+        }
+        return endOfData();
+    }
+
+    /**
+     * Get the oligos making up the sequence most recently returned by next()
+     *
+     * @return one oligo per position of the range, in order
+     */
+    public List<Oligo> getPath() {
+        List<Oligo> path = Lists.newArrayListWithCapacity(choices.length);
+        for (int i = 0; i < choices.length; i++) {
+            path.add(oligos.get(i).get(choices[i]));
+        }
+        return path;
+    }
+}
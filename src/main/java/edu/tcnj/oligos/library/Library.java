@@ -1,12 +1,13 @@
 package edu.tcnj.oligos.library;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Collections2;
+import com.google.common.base.Throwables;
 import com.google.common.collect.EnumBiMap;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
 import edu.tcnj.oligos.data.AminoAcid;
 import edu.tcnj.oligos.data.Codon;
 import edu.tcnj.oligos.library.Fragment.FragmentIterator;
@@ -15,10 +16,14 @@ import edu.tcnj.oligos.library.Overlap.OverlapIterator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -44,6 +49,12 @@ public class Library {
     private Map<Integer, List<Oligo>> oligos;
     private Map<Integer, List<Overlap>> overlaps;
     private final List<BaseSequence> restrictions;
+    private final RestrictionScanner scanner;
+    private final FillEngine fillEngine;
+    private final PlacementEngine placementEngine;
+    private final SwapIterator.Order swapOrder;
+    private final OverlapSolver overlapSolver;
+    private final Map<Codon, Integer> placementAttempts = Maps.newEnumMap(Codon.class);
 
     private Phase executionPhase;
     private int percentComplete = 0;
@@ -51,7 +62,8 @@ public class Library {
 
     private Library(Protein protein, int size, int oligoLength, int overlapLength, int differencesNeeded,
                     Map<Codon, Design> designs, EnumBiMap<AminoAcid, Codon> codonsOfInterest,
-                    List<BaseSequence> restrictions) {
+                    List<BaseSequence> restrictions, FillEngine fillEngine, PlacementEngine placementEngine,
+                    SwapIterator.Order swapOrder, OverlapSolver overlapSolver) {
         this.protein = protein;
         this.size = size;
         this.oligoLength = oligoLength;
@@ -61,6 +73,11 @@ public class Library {
         this.designs = designs;
         this.codonsOfInterest = codonsOfInterest;
         this.restrictions = restrictions;
+        this.scanner = RestrictionScanner.compile(restrictions);
+        this.fillEngine = fillEngine;
+        this.placementEngine = placementEngine;
+        this.swapOrder = swapOrder;
+        this.overlapSolver = overlapSolver;
         this.fullRange = new Fragment.Range(0, size - 1);
     }
 
@@ -69,11 +86,11 @@ public class Library {
         if (restrictions == null || restrictions.isEmpty()) return;
         setExecutionPhase(Phase.REMOVING_RESTRICTIONS);
         //Make a new sequence from the protein's codon sequence (as the protein's sequence is immutable)
-        Sequence sequence = new Sequence(Lists.newArrayList(protein.getSequence()));
+        Sequence sequence = new Sequence(protein);
         //For every restriction: find all occurrences, remove them
         for (int i = 0; i < restrictions.size(); i++) {
             BaseSequence restriction = restrictions.get(i);
-            int index = sequence.asBases().posOfMatch(restriction);
+            int index = scanner.firstPositions(sequence.asBases())[i];
             //While there are still occurrences of the restriction enzyme; each run through
             //the outer while loop deals with one given site at which the enzyme occurs
             while (index != -1) {
@@ -94,50 +111,66 @@ public class Library {
                             potentialSwaps.get(j).add(k);
                     }
                 }
-                SwapIterator swapIt = new SwapIterator(potentialSwaps);
+                SwapIterator swapIt = new SwapIterator(potentialSwaps, -1, swapOrder);
+                int[] thisSwap = new int[swapIt.size()];
+                //Codons of the same acid in the site can swap with each other, and then each swap has to be
+                //made and undone as a whole even in Gray code order
+                boolean singleSteps = swapOrder == SwapIterator.Order.GRAY_CODE && swapIt.hasDisjointSlots(true);
+                //Every earlier restriction is gone, and no occurrence of this one comes before index, so a swap
+                //can only change that by creating a site near the codons it touched; only rescan around those
+                sequence.markClean();
                 while (true) {
                     if (!swapIt.hasNext()) {
                         throw new RuntimeException(new OutOfSwapsException("Ran out of potential swaps when " +
                                 "removing restriction enzyme sites from original sequence."));
                     }
-                    Map<Integer, Integer> thisSwap = swapIt.next();
+                    int changed = swapIt.next(thisSwap);
                     //Try a swap based on the next indices
-                    for (Map.Entry<Integer, Integer> entry : thisSwap.entrySet()) {
-                        if (entry.getValue() == -1) continue;
-
-                        Codon temp = sequence.set(entry.getKey(), sequence.get(entry.getValue()));
-                        sequence.set(entry.getValue(), temp);
+                    if (singleSteps && changed >= 0) {
+                        //Only one slot changed: take back its previous swap and make the new one
+                        int pos = swapIt.getPosition(changed);
+                        swapCodons(sequence, pos, swapIt.getReplacedSwap());
+                        swapCodons(sequence, pos, thisSwap[changed]);
+                    } else {
+                        for (int slot = 0; slot < thisSwap.length; slot++) {
+                            swapCodons(sequence, swapIt.getPosition(slot), thisSwap[slot]);
+                        }
                     }
 
                     //If this swap either removed the restriction or pushed it further back in the sequence, move on
-                    boolean createdOther = false;
-                    BaseSequence baseSequence = sequence.asBases();
-                    for (int j = 0; j < i; j++) {
-                        if (baseSequence.posOfMatch(restrictions.get(j)) != -1) {
-                            createdOther = true;
-                            break;
+                    boolean acceptable = !sequence.asBases().matchesAt(restriction, index);
+                    if (acceptable) {
+                        for (RestrictionScanner.Hit hit : sequence.findRestrictionsNearChanges(scanner)) {
+                            if (hit.getRestriction() < i
+                                    || (hit.getRestriction() == i && hit.getPosition() <= index)) {
+                                acceptable = false;
+                                break;
+                            }
                         }
                     }
+                    if (acceptable) break;
 
-                    if (!createdOther) {
-                        int newIndex = baseSequence.posOfMatch(restriction);
-                        if (newIndex == -1 || newIndex > index) break;
-                    }
-
-                    //Otherwise, undo this swap to try the next one
-                    for (Map.Entry<Integer, Integer> entry : thisSwap.entrySet()) {
-                        if (entry.getValue() == -1) continue;
-
-                        Codon temp = sequence.set(entry.getKey(), sequence.get(entry.getValue()));
-                        sequence.set(entry.getValue(), temp);
+                    //Otherwise, undo this swap (in reverse order) to try the next one;
+                    //with single steps the next swap is made on top of this one instead
+                    if (!singleSteps) {
+                        for (int slot = thisSwap.length - 1; slot >= 0; slot--) {
+                            swapCodons(sequence, swapIt.getPosition(slot), thisSwap[slot]);
+                        }
                     }
                 }
-                index = sequence.asBases().posOfMatch(restriction);
+                index = scanner.firstPositions(sequence.asBases())[i];
             }
         }
         protein.setSequence(sequence);
     }
 
+    //Swap the codons at two positions of the same acid; a negative target means do nothing
+    private static void swapCodons(Sequence sequence, int pos, int target) {
+        if (target < 0) return;
+        int temp = sequence.setOrdinal(pos, sequence.getOrdinal(target));
+        sequence.setOrdinal(target, temp);
+    }
+
     public void initBaseFrequencies(Map<Codon, Double> minFreq) {
         this.codonFrequencies = calcFrequencies();
         setBaseFrequencies(this.protein, minFreq);
@@ -182,7 +215,7 @@ public class Library {
     //and fill in all other codons of the same acid based on their frequencies
     private void setBaseFrequencies(Protein protein, Map<Codon, Double> minFreq) {
         setExecutionPhase(Phase.SETTING_BASE_FREQ);
-        Sequence sequence = new Sequence(Lists.newArrayList(protein.getSequence()));
+        Sequence sequence = new Sequence(protein);
         //For every codon of interest
         for (Map.Entry<Codon, Double> entry : minFreq.entrySet()) {
             Codon codonOfInterest = entry.getKey();
@@ -225,61 +258,19 @@ public class Library {
                 }
             }
 
-            //Shuffle the positions to fill them in in random order
-            Collections.shuffle(potentialCOIspots);
-            //Use an iterator to permute all possible orders
-            Iterator<List<Integer>> perm = Collections2.permutations(potentialCOIspots).iterator();
-            boolean skipCheck;
+            //Calculate the base integer number of occurrences that is closest to the base percentage,
+            //and fill in all the other spots based on the original frequencies of the other codons
             int baseOccurrences = (int) (baseFreq * allCodonSpots.size() + 0.5);
-            do {
-                LibraryUtils.checkInterrupt();
-                skipCheck = false;
-                //Calculate the base integer number of occurrences that is closest to the base percentage
-                //Trim the potential spots to only have as many spots as needed
-                //(necessary for filtering out the used positions from allCodonSpots later)
-                if (!perm.hasNext()) {
-                    throw new RuntimeException(new OutOfSwapsException("Ran out of permutations when setting "
-                            + "the base frequencies of " + codonOfInterest));
-                }
-                List<Integer> trimmedCOIspots = perm.next().subList(0, baseOccurrences);
-                for (Integer potentialSpot : trimmedCOIspots) {
-                    sequence.set(potentialSpot, codonOfInterest);
-                }
-
-                //Fill in all the spots not used for the codon of interest based on their original frequencies
-                List<Integer> otherCodonSpots = new ArrayList<>(allCodonSpots);
-                otherCodonSpots.removeAll(trimmedCOIspots);
-                //As a baseline, fill other positions with PAD to see if this COI permutation causes restriction sites
-                for (Integer index : otherCodonSpots) {
-                    sequence.set(index, Codon.PAD);
-                }
-                //If the COI permutation causes restriction sites to appear, skip to the next COI perm
-                if (LibraryUtils.containsRestrictionEnzyme(sequence, restrictions)) {
-                    skipCheck = true;
-                    continue;
-                }
-
-                Map<Codon, Integer> counts = LibraryUtils.findCodonCounts(codonFrequencies.get(acidOfInterest),
-                        otherCodonSpots.size());
-                List<Codon> codons = new ArrayList<>();
-                for (Map.Entry<Codon, Integer> codonEntry : counts.entrySet()) {
-                    for (Integer i = 0; i < codonEntry.getValue(); i++) {
-                        codons.add(codonEntry.getKey());
-                    }
-                }
-
-                Iterator<List<Codon>> innerPerm = Collections2.orderedPermutations(codons).iterator();
-                Collections.shuffle(otherCodonSpots);
-
-                do {
-                    LibraryUtils.checkInterrupt();
-                    if (!innerPerm.hasNext()) break;
-                    List<Codon> permutedCodons = innerPerm.next();
-                    for (int i = 0; i < otherCodonSpots.size(); i++) {
-                        sequence.set(otherCodonSpots.get(i), permutedCodons.get(i));
-                    }
-                } while (LibraryUtils.containsRestrictionEnzyme(sequence, restrictions));
-            } while (skipCheck || LibraryUtils.containsRestrictionEnzyme(sequence, restrictions));
+            Map<Codon, Integer> counts = LibraryUtils.findCodonCounts(codonFrequencies.get(acidOfInterest),
+                    allCodonSpots.size() - baseOccurrences);
+            int attempts = placementEngine.place(sequence, allCodonSpots, Sets.newHashSet(potentialCOIspots),
+                    codonOfInterest, baseOccurrences, counts, scanner);
+            if (attempts == -1) {
+                throw new RuntimeException(new OutOfSwapsException("Ran out of attempts ("
+                        + placementEngine.getMaxAttempts() + ") when setting the base frequencies of "
+                        + codonOfInterest));
+            }
+            placementAttempts.put(codonOfInterest, attempts);
         }
         protein.setSequence(sequence);
     }
@@ -340,7 +331,7 @@ public class Library {
 
     public FragmentIterator fragmentIterator() {
         return new FragmentIterator(designs, oligos, protein, oligoLength,
-                overlapLength, size, codonFrequencies, restrictions);
+                overlapLength, size, codonFrequencies, scanner, fillEngine);
     }
 
     public void fillFragments() {
@@ -351,6 +342,69 @@ public class Library {
         }
     }
 
+    /**
+     * Fill every fragment, running fills that cannot affect each other concurrently on the given pool.
+     * A fill writes codons into each of its oligos and checks whole oligos for restriction sites,
+     * so two fragments conflict whenever they share an oligo. Each fragment goes in the wave after
+     * the last one holding a fragment it conflicts with, and the waves run one after another, so
+     * conflicting fragments are filled in the same order as {@link #fillFragments()} fills them.
+     *
+     * @param pool the pool to run fills on
+     */
+    public void fillFragments(ForkJoinPool pool) {
+        setExecutionPhase(Phase.FILLING_FRAGMENTS);
+        List<List<Fragment>> waves = Lists.newArrayList();
+        List<Set<Oligo>> footprints = Lists.newArrayList();
+        FragmentIterator it = fragmentIterator();
+        while (it.hasNext()) {
+            Fragment fragment = it.next();
+            Set<Oligo> footprint = Sets.newIdentityHashSet();
+            for (List<Oligo> oligosAtPos : fragment.getOligos().values()) {
+                footprint.addAll(oligosAtPos);
+            }
+            //Put the fragment in the wave after the last one that uses any of its oligos, so that it
+            //still runs after every earlier fragment it shares an oligo with
+            int wave = waves.size();
+            while (wave > 0 && Collections.disjoint(footprints.get(wave - 1), footprint)) {
+                wave--;
+            }
+            if (wave == waves.size()) {
+                waves.add(Lists.<Fragment>newArrayList());
+                footprints.add(Sets.<Oligo>newIdentityHashSet());
+            }
+            waves.get(wave).add(fragment);
+            footprints.get(wave).addAll(footprint);
+        }
+
+        for (List<Fragment> wave : waves) {
+            LibraryUtils.checkInterrupt();
+            List<Callable<Void>> fills = Lists.newArrayListWithCapacity(wave.size());
+            for (final Fragment fragment : wave) {
+                fills.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        fragment.fill();
+                        return null;
+                    }
+                });
+            }
+            List<Future<Void>> results = pool.invokeAll(fills);
+            try {
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+            } catch (InterruptedException e) {
+                for (Future<Void> result : results) {
+                    result.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Execution was cancelled.", e);
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+    }
+
     /**
      * Create overlaps for every position, figuring out how many are needed based on the design.
      * Does not make the overlaps unique, but sets each to match with its corresponding oligos.
@@ -431,6 +485,46 @@ public class Library {
         this.overlaps.put(pos, retOverlaps);
     }
 
+    /**
+     * Count the full-length genes that the oligos assemble into, without building them.
+     *
+     * @return the total number of genes, and the number of genes using each oligo
+     */
+    public GeneCount countGenes() {
+        checkState(oligos != null);
+        return GeneCount.count(fullRange, oligos, overlapLength);
+    }
+
+    /**
+     * Summarize the codon pair scores of every gene in the library, without assembling any genes
+     *
+     * @param scorer  the codon pair values
+     * @param numBins the number of histogram bins
+     * @return the number of scored genes, and the range, mean, variance and histogram of their scores
+     */
+    public ScoreSummary summarizeCodonPairScores(CodonPairScorer scorer, int numBins) {
+        checkState(oligos != null);
+        return ScoreSummary.summarize(fullRange, oligos, overlapLength, scorer, numBins);
+    }
+
+    /**
+     * Find the genes with the highest or lowest codon pair scores, without assembling every gene
+     *
+     * @param scorer  the codon pair values
+     * @param k       the number of genes to find
+     * @param highest whether to find the highest scores (otherwise the lowest)
+     * @return the (up to) k best-scoring genes, best first
+     */
+    public List<Gene> findTopGenes(CodonPairScorer scorer, int k, boolean highest) {
+        checkState(oligos != null);
+        PathScorer pathScorer = new PathScorer(scorer, overlapLength);
+        List<Gene> genes = Lists.newArrayList();
+        for (List<Oligo> path : TopGenes.find(fullRange, oligos, overlapLength, scorer, k, highest)) {
+            genes.add(Gene.fromPath(path, overlapLength, codonsOfInterest, pathScorer.score(path)));
+        }
+        return genes;
+    }
+
     public OverlapIterator overlapIterator() {
         checkState(overlaps != null);
         return new OverlapIterator(overlaps);
@@ -445,42 +539,59 @@ public class Library {
         OverlapIterator it = overlapIterator();
         // position      index    swaps
         Map<Integer, Map<Integer, List<Integer>>> potentialSwaps = findPotentialSwaps();
+        if (overlapSolver.getStrategy() == OverlapSolver.Strategy.MIN_CONFLICTS) {
+            solveOverlaps(potentialSwaps);
+            return;
+        }
 
         // position      indices
         Map<Integer, SwapIterator> swapIts = new HashMap<>();
 
-        //Make a SwapIterator for each overlap position
-        for (Map.Entry<Integer, Map<Integer, List<Integer>>> entry : potentialSwaps.entrySet()) {
-            swapIts.put(entry.getKey(), new SwapIterator(entry.getValue()));
+        //Make a SwapIterator for each overlap position; in Gray code order each overlap gets its own,
+        //as single steps only work from the swaps it has made
+        if (swapOrder == SwapIterator.Order.ODOMETER) {
+            for (Map.Entry<Integer, Map<Integer, List<Integer>>> entry : potentialSwaps.entrySet()) {
+                swapIts.put(entry.getKey(), new SwapIterator(entry.getValue(), -1, swapOrder));
+            }
         }
         double numTotal = 0;
         for (List<Overlap> overlapList : overlaps.values()) {
             numTotal += overlapList.size();
         }
 
-        List<Overlap> visited = new ArrayList<>();
+        OverlapIndex visited = new OverlapIndex(differencesNeeded);
         while (it.hasNext()) {
             this.overlapsPercent = (int) (100 * (visited.size() / numTotal));
             Overlap overlap = it.next();
             int pos = it.getCurrentPosition(); // must be after .next() call!!!
-            boolean matches = matchesAnyVisited(overlap, visited);
-            SwapIterator swapIt = swapIts.get(pos);
+            SwapIterator swapIt = swapOrder == SwapIterator.Order.ODOMETER ? swapIts.get(pos)
+                    : new SwapIterator(potentialSwaps.get(pos), -1, swapOrder);
+            int[] thisSwap = new int[swapIt.size()];
+            //Two overlap codons that can swap with the same attachment codon don't allow single steps
+            boolean singleSteps = swapOrder == SwapIterator.Order.GRAY_CODE && swapIt.hasDisjointSlots(false);
+            boolean acceptable = isUniqueAndClean(overlap, pos, visited);
             // while current overlap is not unique (to all previous overlaps), start swapping
-            while (matches || hasRestrictions()) {
+            while (!acceptable) {
                 // swap all possible indices of current overlap based on permutation indices
                 if (!swapIt.hasNext()) {
                     throw new RuntimeException(new OutOfSwapsException("Ran out of permutations when trying "
                             + "to make overlap unique:\n" + overlap));
                 }
-                Map<Integer, Integer> thisSwap = swapIt.next();
-                doOverlapPermutation(overlap, thisSwap);
-
-                matches = matchesAnyVisited(overlap, visited);
+                int changed = swapIt.next(thisSwap);
+                if (singleSteps && changed >= 0) {
+                    //Only one slot changed: take back its previous swap and make the new one
+                    int overlapIndex = swapIt.getPosition(changed);
+                    swapOverlapCodon(overlap, overlapIndex, swapIt.getReplacedSwap());
+                    swapOverlapCodon(overlap, overlapIndex, thisSwap[changed]);
+                } else {
+                    doOverlapPermutation(overlap, swapIt, thisSwap, false);
+                }
 
-                if (matches || hasRestrictions()) {
-                    //Undo the swap if it is not unique or if it made a restriction site
-                    doOverlapPermutation(overlap, thisSwap);
-                    matches = true;
+                acceptable = isUniqueAndClean(overlap, pos, visited);
+                if (!acceptable && !singleSteps) {
+                    //Undo the swap if it is not unique or if it made a restriction site;
+                    //with single steps the next swap is made on top of this one instead
+                    doOverlapPermutation(overlap, swapIt, thisSwap, true);
                 }
             }
 
@@ -489,38 +600,74 @@ public class Library {
         }
     }
 
+    //Make the overlaps unique with a search over every overlap's swaps at once
+    private void solveOverlaps(Map<Integer, Map<Integer, List<Integer>>> potentialSwaps) {
+        int steps = overlapSolver.solve(overlaps, potentialSwaps, differencesNeeded, new OverlapSolver.Target() {
+            @Override
+            public void swap(Overlap overlap, int overlapIndex, int attachIndex) {
+                swapOverlapCodon(overlap, overlapIndex, attachIndex);
+            }
+
+            @Override
+            public boolean hasRestriction(int pos) {
+                return hasRestrictionAt(pos);
+            }
+
+            @Override
+            public boolean hasLongRestriction() {
+                return hasLongSites() && hasRestrictions();
+            }
+        });
+        if (steps == -1) {
+            throw new RuntimeException(new OutOfSwapsException("Could not make overlaps unique within "
+                    + overlapSolver.getMaxSteps() + " steps."));
+        }
+        this.overlapsPercent = 100;
+    }
+
     private boolean hasRestrictions() {
-        return (restrictions != null && !restrictions.isEmpty()
-                && LibraryUtils.containsRestrictionEnzyme(
-                LibraryUtils.buildPermutations(fullRange,
-                        oligos, oligoLength, overlapLength), restrictions));
+        return (!scanner.isEmpty()
+                && LibraryUtils.containsRestrictionEnzyme(fullRange, oligos, overlapLength, scanner));
     }
 
-    private void doOverlapPermutation(Overlap overlap, Map<Integer, Integer> thisSwap) {
-        //Based on the given permutation indices, swap each part of the oligo
-        for (Map.Entry<Integer, Integer> entry : thisSwap.entrySet()) {
-            int attachIndex = entry.getValue();
+    //Whether a gene through the oligos on either side of the overlaps at a position has a site
+    private boolean hasRestrictionAt(int pos) {
+        return !scanner.isEmpty() && LibraryUtils.containsRestrictionEnzyme(
+                new Fragment.Range(pos, pos + 1), oligos, overlapLength, scanner);
+    }
 
-            if (attachIndex == -1) continue;
+    //Whether some site is too long to lie within two oligos, so that only checking every gene finds it
+    private boolean hasLongSites() {
+        return !LibraryUtils.sitesFitInTwoOligos(scanner, oligoLength);
+    }
 
-            int overlapIndex = entry.getKey();
-            //Swap with either the pre or post attachments based on the index
-            if (attachIndex < oligoLength) {
-                overlap.swapWithAttachments(overlapIndex, attachIndex, overlap.getPreAttachments());
-            } else {
-                overlap.swapWithAttachments(overlapIndex, attachIndex - oligoLength, overlap.getPostAttachments());
-            }
+    //Whether an overlap differs enough from those before it, and no gene has a site. Swaps at a position
+    //only change the oligos on either side of it, so only the genes through those can gain a site
+    //(unless a site is too long to lie within two oligos, when every gene is checked)
+    private boolean isUniqueAndClean(Overlap overlap, int pos, OverlapIndex visited) {
+        if (visited.matchesAny(overlap)) return false;
+        for (int p = Math.max(0, pos - 1); p <= Math.min(size - 2, pos + 1); p++) {
+            if (hasRestrictionAt(p)) return false;
         }
+        return !hasLongSites() || !hasRestrictions();
     }
 
-    private boolean matchesAnyVisited(Overlap overlap, List<Overlap> visited) {
-        //Make sure that this overlap is unique to all the others made so far
-        for (Overlap prev : visited) {
-            if (BaseSequence.numDifferences(overlap.asBases(), prev.asBases()) < differencesNeeded) {
-                return true;
-            }
+    private void doOverlapPermutation(Overlap overlap, SwapIterator swapIt, int[] thisSwap, boolean undo) {
+        //Based on the given permutation indices, swap each part of the oligo (in reverse order to undo)
+        for (int i = 0; i < thisSwap.length; i++) {
+            int slot = undo ? thisSwap.length - 1 - i : i;
+            swapOverlapCodon(overlap, swapIt.getPosition(slot), thisSwap[slot]);
+        }
+    }
+
+    private void swapOverlapCodon(Overlap overlap, int overlapIndex, int attachIndex) {
+        if (attachIndex < 0) return;
+        //Swap with either the pre or post attachments based on the index
+        if (attachIndex < oligoLength) {
+            overlap.swapWithAttachments(overlapIndex, attachIndex, overlap.getPreAttachments());
+        } else {
+            overlap.swapWithAttachments(overlapIndex, attachIndex - oligoLength, overlap.getPostAttachments());
         }
-        return false;
     }
 
     private Map<Integer, Map<Integer, List<Integer>>> findPotentialSwaps() {
@@ -671,6 +818,13 @@ public class Library {
         return overlapLength;
     }
 
+    /**
+     * @return the number of attempts it took to place each codon of interest when setting base frequencies
+     */
+    public Map<Codon, Integer> getPlacementAttempts() {
+        return placementAttempts;
+    }
+
     public synchronized Phase getExecutionPhase() {
         return executionPhase;
     }
@@ -694,6 +848,12 @@ public class Library {
         private Map<Codon, Design> designs;
         private EnumBiMap<AminoAcid, Codon> codonsOfInterest;
         private List<BaseSequence> restrictions;
+        private FillEngine fillEngine = new FillEngine(FillEngine.Strategy.NEAREST_SITE,
+                FillEngine.DEFAULT_MAX_ATTEMPTS);
+        private int placementAttempts = PlacementEngine.DEFAULT_MAX_ATTEMPTS;
+        private SwapIterator.Order swapOrder = SwapIterator.Order.ODOMETER;
+        private OverlapSolver overlapSolver = new OverlapSolver(OverlapSolver.Strategy.GREEDY,
+                OverlapSolver.DEFAULT_MAX_STEPS, 0);
 
         public Builder withSequenceLength(int start, int end) {
             checkArgument(start < end,
@@ -741,6 +901,38 @@ public class Library {
             return this;
         }
 
+        public Builder withFillStrategy(FillEngine.Strategy strategy, int maxAttempts) {
+            checkNotNull(strategy, "Can't have null fill strategy");
+            checkArgument(maxAttempts > 0, "Invalid number of fill attempts: %s", maxAttempts);
+            this.fillEngine = new FillEngine(strategy, maxAttempts);
+            return this;
+        }
+
+        public Builder withPlacementAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "Invalid number of placement attempts: %s", maxAttempts);
+            this.placementAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Set the order in which combinations of codon swaps are tried when removing restriction sites and
+         * making overlaps unique. In Gray code order each attempt changes one swap of the attempt before,
+         * rather than undoing it and making the next from scratch; when two swaps touch the same codon the
+         * sequences tried may then differ from those of the odometer order (but are just as valid).
+         */
+        public Builder withSwapOrder(SwapIterator.Order order) {
+            checkNotNull(order, "Can't have null swap order");
+            this.swapOrder = order;
+            return this;
+        }
+
+        public Builder withOverlapSolver(OverlapSolver.Strategy strategy, int maxSteps, long seed) {
+            checkNotNull(strategy, "Can't have null overlap solver strategy");
+            checkArgument(maxSteps > 0, "Invalid number of overlap solver steps: %s", maxSteps);
+            this.overlapSolver = new OverlapSolver(strategy, maxSteps, seed);
+            return this;
+        }
+
         public Library build() {
             checkState(!proteinRNA.isEmpty());
             checkState(designs != null);
@@ -753,7 +945,8 @@ public class Library {
             int size = ((seqEnd - seqStart) - overlapSize) / (oligoLength - overlapSize);
 
             return new Library(protein, size, oligoLength, overlapSize, differencesNeeded,
-                    designs, codonsOfInterest, restrictions);
+                    designs, codonsOfInterest, restrictions, fillEngine,
+                    new PlacementEngine(placementAttempts), swapOrder, overlapSolver);
         }
     }
 
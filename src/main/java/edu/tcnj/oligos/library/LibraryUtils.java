@@ -1,10 +1,11 @@
 package edu.tcnj.oligos.library;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import edu.tcnj.oligos.data.Codon;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -13,18 +14,26 @@ public class LibraryUtils {
      * Determine whether any Sequence in the list contains a restriction enzyme site
      *
      * @param possiblePermutations a list of Sequences to check
-     * @param restrictions         a list of BaseSequences to be avoided
+     * @param scanner              the compiled restriction sites to be avoided
      * @return true iff any one of the restrictions appears in any of the possiblePermutations
      */
-    static boolean containsRestrictionEnzyme(List<Sequence> possiblePermutations,
-                                                    List<BaseSequence> restrictions) {
-        if (restrictions == null || restrictions.isEmpty()) return false;
-        for (Sequence possiblePermutation : possiblePermutations) {
-            BaseSequence baseSequence = possiblePermutation.asBases();
-            for (BaseSequence restriction : restrictions) {
-                if (baseSequence.posOfMatch(restriction) != -1) {
-                    return true;
-                }
+    static boolean containsRestrictionEnzyme(List<Sequence> possiblePermutations, RestrictionScanner scanner) {
+        return containsRestrictionEnzyme(possiblePermutations.iterator(), scanner);
+    }
+
+    /**
+     * Determine whether any Sequence from the iterator contains a restriction enzyme site,
+     * stopping at the first one that does
+     *
+     * @param possiblePermutations the Sequences to check (e.g. a {@link GeneIterator})
+     * @param scanner              the compiled restriction sites to be avoided
+     * @return true iff any one of the restrictions appears in any of the possiblePermutations
+     */
+    static boolean containsRestrictionEnzyme(Iterator<Sequence> possiblePermutations, RestrictionScanner scanner) {
+        if (scanner.isEmpty()) return false;
+        while (possiblePermutations.hasNext()) {
+            if (scanner.containsAny(possiblePermutations.next().asBases())) {
+                return true;
             }
         }
         return false;
@@ -33,65 +42,212 @@ public class LibraryUtils {
     /**
      * Determine whether this sequence contains a restriction enzyme site
      *
-     * @param sequence     the sequence to check
-     * @param restrictions a list of BaseSequences to be avoided
+     * @param sequence the sequence to check
+     * @param scanner  the compiled restriction sites to be avoided
      * @return true iff the sequence contains any of the restrictions
      */
-    static boolean containsRestrictionEnzyme(Sequence sequence, List<BaseSequence> restrictions) {
-        if (restrictions == null || restrictions.isEmpty()) return false;
-        for (BaseSequence restriction : restrictions) {
-            if (sequence.asBases().posOfMatch(restriction) != -1) return true;
-        }
-        return false;
+    static boolean containsRestrictionEnzyme(Sequence sequence, RestrictionScanner scanner) {
+        return !scanner.isEmpty() && scanner.containsAny(sequence.asBases());
     }
 
     /**
-     * Build all possible permutations of oligos in a given range
+     * Determine whether any gene assembled from the oligos in a range contains a restriction enzyme site
      *
-     * @param range         the range of oligo positions to be permuted (inclusive)
-     * @param oligos        the oligos to be permuted
-     * @param oligoLength   the length of an oligo
+     * @param range         the range of oligo positions to check (inclusive)
+     * @param oligos        the oligos at each position
      * @param overlapLength the length of an overlap
-     * @return a list of all possible BaseSequences made from these oligos
+     * @param scanner       the compiled restriction sites to be avoided
+     * @return true iff any one of the restrictions appears in any gene assembled from the range
+     * @see #findRestrictionEnzyme(Fragment.Range, Map, int, RestrictionScanner)
      */
-    public static List<Sequence> buildPermutations(Fragment.Range range, Map<Integer, List<Oligo>> oligos,
-                                                   int oligoLength, int overlapLength) {
-        return buildPermutationsRecursive(range.getStartPosition(), range, oligos, oligoLength, overlapLength);
+    static boolean containsRestrictionEnzyme(Fragment.Range range, Map<Integer, List<Oligo>> oligos,
+                                             int overlapLength, RestrictionScanner scanner) {
+        return findRestrictionEnzyme(range, oligos, overlapLength, scanner) != null;
     }
 
-    //Recursively build all permutations
-    private static List<Sequence> buildPermutationsRecursive(int position, Fragment.Range range,
-                                                             Map<Integer, List<Oligo>> oligos, int oligoLength, int overlapLength) {
-        checkInterrupt();
-        //Base case: for the last position, just return a list of the oligos as BaseSequences
-        List<Sequence> finalPermutations = new ArrayList<>();
-        if (position == range.getEndPosition()) {
-            finalPermutations.addAll(oligos.get(position));
-            return finalPermutations;
+    /**
+     * Whether every site is short enough that one in an assembled gene lies within one oligo or across
+     * the junction of two, so that checking each pair of consecutive oligos finds it
+     *
+     * @param oligoLength the length of an oligo, in codons
+     */
+    static boolean sitesFitInTwoOligos(RestrictionScanner scanner, int oligoLength) {
+        return scanner.getLongestSite() <= oligoLength * 3 + 1;
+    }
+
+    /**
+     * Find a restriction enzyme site in some gene assembled from the oligos in a range,
+     * without assembling the genes. A site in an assembled gene lies either inside one oligo or across the
+     * junction of two consecutive oligos, so each oligo that is part of some assembly is scanned once, and
+     * each pair of consecutive oligos that is part of some assembly is scanned only around its junction.
+     * Falls back to walking every gene if a site is too long to be covered by two oligos.
+     *
+     * @param range         the range of oligo positions to check (inclusive)
+     * @param oligos        the oligos at each position
+     * @param overlapLength the length of an overlap
+     * @param scanner       the compiled restriction sites to be avoided
+     * @return a site that was found, positioned in bases from the start of the range, or null if there is none
+     */
+    static RestrictionScanner.Hit findRestrictionEnzyme(Fragment.Range range, Map<Integer, List<Oligo>> oligos,
+                                                        int overlapLength, RestrictionScanner scanner) {
+        if (scanner.isEmpty()) return null;
+        int start = range.getStartPosition();
+        int end = range.getEndPosition();
+        int siteLength = scanner.getLongestSite();
+        int overlapBases = overlapLength * 3;
+        for (int pos = start; pos <= end; pos++) {
+            for (Oligo oligo : oligos.get(pos)) {
+                if (!sitesFitInTwoOligos(scanner, oligo.size())) {
+                    GeneIterator genes = new GeneIterator(range, oligos, overlapLength);
+                    while (genes.hasNext()) {
+                        BaseSequence gene = genes.next().asBases();
+                        RestrictionScanner.Hit hit = scanner.findFirst(gene, 0, gene.size());
+                        if (hit != null) return hit;
+                    }
+                    return null;
+                }
+            }
+        }
+        //connected[pos - start][i][j]: oligo i at pos can be followed by oligo j at pos + 1
+        boolean[][][] connected = new boolean[end - start][][];
+        for (int pos = start; pos < end; pos++) {
+            List<Oligo> pre = oligos.get(pos);
+            List<Oligo> post = oligos.get(pos + 1);
+            connected[pos - start] = new boolean[pre.size()][post.size()];
+            for (int i = 0; i < pre.size(); i++) {
+                for (int j = 0; j < post.size(); j++) {
+                    connected[pos - start][i][j] = connects(pre.get(i), post.get(j), overlapLength);
+                }
+            }
         }
-        //Recurse: find all possible sequences made of all oligos in later positions than this current one
-        List<Sequence> partialPermutations = buildPermutationsRecursive(position + 1, range, oligos,
-                oligoLength, overlapLength);
-        //For every oligo in this position
-        for (Oligo oligo : oligos.get(position)) {
-            //Get the ending overlap base sequence for this oligo
-            Sequence overlap = oligo.subList(oligoLength - overlapLength, oligoLength);
-            for (Sequence partialPermutation : partialPermutations) {
-                //If any of the permutations start with this overlap, that means that this oligo can connect to it
-                if (Sequence.regionsMatch(partialPermutation, 0, overlapLength, overlap, 0, overlapLength)) {
-                    //Make the sequence produced by putting this oligo in
-                    //front of the permutation, add it to fullSequences
-                    Sequence ending = partialPermutation.subList(overlapLength, partialPermutation.size());
-                    Codon[] fullSeqArr = new Codon[oligo.size() + ending.size()];
-                    System.arraycopy(oligo.toArray(), 0, fullSeqArr, 0, oligo.size());
-                    System.arraycopy(ending.toArray(), 0, fullSeqArr, oligo.size(), ending.size());
-
-                    finalPermutations.add(new Sequence(Arrays.asList(fullSeqArr)));
+        //An oligo is part of some assembly iff it can be reached from the start of the range
+        //and the end of the range can be reached from it
+        boolean[][] fromStart = new boolean[end - start + 1][];
+        boolean[][] toEnd = new boolean[end - start + 1][];
+        fromStart[0] = new boolean[oligos.get(start).size()];
+        Arrays.fill(fromStart[0], true);
+        for (int pos = start + 1; pos <= end; pos++) {
+            fromStart[pos - start] = new boolean[oligos.get(pos).size()];
+            for (int i = 0; i < fromStart[pos - start - 1].length; i++) {
+                if (!fromStart[pos - start - 1][i]) continue;
+                for (int j = 0; j < fromStart[pos - start].length; j++) {
+                    fromStart[pos - start][j] |= connected[pos - start - 1][i][j];
+                }
+            }
+        }
+        toEnd[end - start] = new boolean[oligos.get(end).size()];
+        Arrays.fill(toEnd[end - start], true);
+        for (int pos = end - 1; pos >= start; pos--) {
+            toEnd[pos - start] = new boolean[oligos.get(pos).size()];
+            for (int i = 0; i < toEnd[pos - start].length; i++) {
+                for (int j = 0; j < toEnd[pos - start + 1].length; j++) {
+                    if (toEnd[pos - start + 1][j] && connected[pos - start][i][j]) {
+                        toEnd[pos - start][i] = true;
+                        break;
+                    }
                 }
             }
         }
 
-        return finalPermutations;
+        //Where each position's oligos start, in bases from the start of the range
+        int[] oligoStarts = new int[end - start + 1];
+        for (int pos = start + 1; pos <= end; pos++) {
+            oligoStarts[pos - start] = oligoStarts[pos - start - 1] + oligos.get(pos - 1).get(0).size() * 3
+                    - overlapBases;
+        }
+        for (int pos = start; pos <= end; pos++) {
+            List<Oligo> here = oligos.get(pos);
+            for (int i = 0; i < here.size(); i++) {
+                checkInterrupt();
+                if (!fromStart[pos - start][i] || !toEnd[pos - start][i]) continue;
+                BaseSequence bases = here.get(i).asBases();
+                RestrictionScanner.Hit hit = scanner.findFirst(bases, 0, bases.size());
+                if (hit != null) {
+                    return new RestrictionScanner.Hit(oligoStarts[pos - start] + hit.getPosition(),
+                            hit.getRestriction());
+                }
+            }
+        }
+        //A site crossing a junction starts before the overlap and ends after the pre oligo; that can only
+        //happen for sites at least two bases longer than the overlap
+        if (siteLength <= overlapBases + 1) return null;
+        for (int pos = start; pos < end; pos++) {
+            List<Oligo> pre = oligos.get(pos);
+            List<Oligo> post = oligos.get(pos + 1);
+            for (int i = 0; i < pre.size(); i++) {
+                if (!fromStart[pos - start][i]) continue;
+                BaseSequence preBases = pre.get(i).asBases();
+                int preFrom = Math.max(0, preBases.size() - siteLength + 1);
+                for (int j = 0; j < post.size(); j++) {
+                    if (!toEnd[pos - start + 1][j] || !connected[pos - start][i][j]) continue;
+                    checkInterrupt();
+                    BaseSequence postBases = post.get(j).asBases();
+                    BaseSequence junction = BaseSequence.join(preBases, preFrom, preBases.size(),
+                            postBases, overlapBases, Math.min(postBases.size(), siteLength - 1));
+                    RestrictionScanner.Hit hit = scanner.findFirst(junction, 0, junction.size());
+                    if (hit != null) {
+                        return new RestrictionScanner.Hit(oligoStarts[pos - start] + preFrom + hit.getPosition(),
+                                hit.getRestriction());
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    //An oligo can follow another if it starts with the other's ending overlap
+    static boolean connects(Oligo pre, Oligo post, int overlapLength) {
+        return Sequence.regionsMatch(post, 0, overlapLength, pre, pre.size() - overlapLength, pre.size());
+    }
+
+    //The codons [from, from + length) of a sequence, as a key for grouping
+    static String overlapKey(Sequence seq, int from, int length) {
+        char[] key = new char[length];
+        for (int i = 0; i < length; i++) {
+            key[i] = (char) seq.getOrdinal(from + i);
+        }
+        return new String(key);
+    }
+
+    //The overlap an oligo ends in; without overlaps, its last codon (which the pair across the junction needs)
+    static String endKey(Oligo oligo, int overlapLength) {
+        int length = overlapLength > 0 ? overlapLength : Math.min(1, oligo.size());
+        return overlapKey(oligo, oligo.size() - length, length);
+    }
+
+    /**
+     * Group the oligos at a position by the overlap they end in (see {@link #endKey(Oligo, int)}); every oligo
+     * in a group can be followed by the same oligos, in the same way
+     *
+     * @return the indices of the oligos in each group, the groups in order of their first oligo
+     */
+    static Map<String, List<Integer>> groupByEnd(List<Oligo> oligos, int overlapLength) {
+        Map<String, List<Integer>> groups = Maps.newLinkedHashMap();
+        for (int j = 0; j < oligos.size(); j++) {
+            String key = endKey(oligos.get(j), overlapLength);
+            List<Integer> group = groups.get(key);
+            if (group == null) {
+                group = Lists.newArrayList();
+                groups.put(key, group);
+            }
+            group.add(j);
+        }
+        return groups;
+    }
+
+    /**
+     * Build all possible permutations of oligos in a given range.
+     * Holds every permutation at once; use a {@link GeneIterator} to walk them one at a time instead.
+     *
+     * @param range         the range of oligo positions to be permuted (inclusive)
+     * @param oligos        the oligos to be permuted
+     * @param oligoLength   the length of an oligo
+     * @param overlapLength the length of an overlap
+     * @return a list of all possible BaseSequences made from these oligos
+     */
+    public static List<Sequence> buildPermutations(Fragment.Range range, Map<Integer, List<Oligo>> oligos,
+                                                   int oligoLength, int overlapLength) {
+        return Lists.newArrayList(new GeneIterator(range, oligos, overlapLength));
     }
 
     /**
@@ -55,14 +55,14 @@ public class Overlap extends Oligo {
 
     //Set the codon in all oligos that connect to this overlap (to keep the overlap regions matching)
     @Override
-    public Codon set(int index, Codon codon) {
-        Codon prev = super.set(index, codon);
+    public int setOrdinal(int index, int ordinal) {
+        int prev = super.setOrdinal(index, ordinal);
         for (Oligo oligo : preAttachments) {
-            Codon prevO = oligo.set(oligo.size() - this.size() + index, codon);
+            int prevO = oligo.setOrdinal(oligo.size() - this.size() + index, ordinal);
             checkState(prevO == prev);
         }
         for (Oligo oligo : postAttachments) {
-            Codon prevO = oligo.set(index, codon);
+            int prevO = oligo.setOrdinal(index, ordinal);
             checkState(prevO == prev);
         }
         return prev;
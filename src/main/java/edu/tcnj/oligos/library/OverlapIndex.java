@@ -0,0 +1,239 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The overlaps accepted so far, indexed to answer whether any of them is closer than a number of
+ * differences to a given overlap without comparing it to every one. Two sequences of the same length
+ * that differ in fewer than d bases must agree on at least one of d disjoint segments of it, so each
+ * stored sequence is hashed by the contents of each of its d segments, and only the sequences sharing
+ * a segment with the query are compared base by base. Sequences of different lengths already differ
+ * in the difference of their lengths, and are compared directly when that is under d.
+ * Each overlap's bases are copied when it is added, so changing it afterwards doesn't affect the index.
+ */
+class OverlapIndex {
+    private final int differencesNeeded;
+    private final Map<Integer, Bucket> buckets = Maps.newHashMap();
+    private final Map<Overlap, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * @param differencesNeeded the number of differences an overlap needs from every other one
+     */
+    OverlapIndex(int differencesNeeded) {
+        this.differencesNeeded = differencesNeeded;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void add(Overlap overlap) {
+        checkArgument(!entries.containsKey(overlap), "Overlap already indexed: %s", overlap);
+        BaseSequence bases = overlap.asBases().subList(0, overlap.asBases().size());
+        Entry entry = new Entry(overlap, bases);
+        entries.put(overlap, entry);
+        bucket(bases.size()).add(entry);
+    }
+
+    /**
+     * Remove an overlap, as it was when it was added
+     *
+     * @return whether the overlap was in the index
+     */
+    boolean remove(Overlap overlap) {
+        Entry entry = entries.remove(overlap);
+        if (entry == null) return false;
+        Bucket bucket = buckets.get(entry.bases.size());
+        bucket.remove(entry);
+        if (bucket.all.isEmpty()) {
+            buckets.remove(entry.bases.size());
+        }
+        return true;
+    }
+
+    /**
+     * Check an overlap (as it is now) against every other overlap in the index
+     *
+     * @return whether any other overlap has fewer than the needed number of differences from it
+     */
+    boolean matchesAny(Overlap overlap) {
+        if (differencesNeeded <= 0) return false;
+        BaseSequence bases = overlap.asBases();
+        for (Map.Entry<Integer, Bucket> bucket : buckets.entrySet()) {
+            int lengthDifference = Math.abs(bucket.getKey() - bases.size());
+            if (lengthDifference >= differencesNeeded) continue;
+            if (lengthDifference == 0 ? bucket.getValue().matchesAny(overlap, bases)
+                    : bucket.getValue().scanAny(overlap, bases)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find every other overlap in the index too close to an overlap (as it is now)
+     *
+     * @return the overlaps with fewer than the needed number of differences from it
+     */
+    List<Overlap> findMatches(Overlap overlap) {
+        List<Overlap> matches = Lists.newArrayList();
+        if (differencesNeeded <= 0) return matches;
+        Set<Overlap> seen = Collections.newSetFromMap(new IdentityHashMap<Overlap, Boolean>());
+        BaseSequence bases = overlap.asBases();
+        for (Map.Entry<Integer, Bucket> bucket : buckets.entrySet()) {
+            int lengthDifference = Math.abs(bucket.getKey() - bases.size());
+            if (lengthDifference >= differencesNeeded) continue;
+            if (lengthDifference == 0) {
+                bucket.getValue().collectMatches(overlap, bases, seen, matches);
+            } else {
+                bucket.getValue().collectCloser(bucket.getValue().all, overlap, bases, seen, matches);
+            }
+        }
+        return matches;
+    }
+
+    private Bucket bucket(int length) {
+        Bucket bucket = buckets.get(length);
+        if (bucket == null) {
+            bucket = new Bucket(length, differencesNeeded);
+            buckets.put(length, bucket);
+        }
+        return bucket;
+    }
+
+    private static class Entry {
+        final Overlap overlap;
+        final BaseSequence bases;
+
+        Entry(Overlap overlap, BaseSequence bases) {
+            this.overlap = overlap;
+            this.bases = bases;
+        }
+    }
+
+    /**
+     * The stored sequences of one length, split into segments at the given bounds
+     */
+    private static class Bucket {
+        final int differencesNeeded;
+        final List<Entry> all = Lists.newArrayList();
+        //segment bounds: segment s is [bounds[s], bounds[s + 1])
+        final int[] bounds;
+        final List<Map<String, List<Entry>>> segments = Lists.newArrayList();
+
+        Bucket(int length, int differencesNeeded) {
+            this.differencesNeeded = differencesNeeded;
+            //With more differences allowed than bases, every sequence of this length is too close
+            int numSegments = differencesNeeded > length ? 0 : differencesNeeded;
+            this.bounds = new int[numSegments + 1];
+            for (int s = 0; s <= numSegments; s++) {
+                bounds[s] = numSegments == 0 ? 0 : s * length / numSegments;
+            }
+            for (int s = 0; s < numSegments; s++) {
+                segments.add(Maps.<String, List<Entry>>newHashMap());
+            }
+        }
+
+        void add(Entry entry) {
+            all.add(entry);
+            for (int s = 0; s < segments.size(); s++) {
+                String key = entry.bases.maskKey(bounds[s], bounds[s + 1]);
+                List<Entry> list = segments.get(s).get(key);
+                if (list == null) {
+                    list = Lists.newArrayListWithCapacity(1);
+                    segments.get(s).put(key, list);
+                }
+                list.add(entry);
+            }
+        }
+
+        void remove(Entry entry) {
+            removeEntry(all, entry);
+            for (int s = 0; s < segments.size(); s++) {
+                String key = entry.bases.maskKey(bounds[s], bounds[s + 1]);
+                List<Entry> list = segments.get(s).get(key);
+                removeEntry(list, entry);
+                if (list.isEmpty()) {
+                    segments.get(s).remove(key);
+                }
+            }
+        }
+
+        private static void removeEntry(List<Entry> list, Entry entry) {
+            for (Iterator<Entry> it = list.iterator(); it.hasNext(); ) {
+                if (it.next() == entry) {
+                    it.remove();
+                    return;
+                }
+            }
+        }
+
+        //Query a sequence of this bucket's length
+        boolean matchesAny(Overlap overlap, BaseSequence bases) {
+            if (segments.isEmpty()) {
+                for (Entry entry : all) {
+                    if (entry.overlap != overlap) return true;
+                }
+                return false;
+            }
+            for (int s = 0; s < segments.size(); s++) {
+                List<Entry> candidates = segments.get(s).get(bases.maskKey(bounds[s], bounds[s + 1]));
+                if (candidates != null && anyCloser(candidates, overlap, bases)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        //Collect the matches of a sequence of this bucket's length
+        void collectMatches(Overlap overlap, BaseSequence bases, Set<Overlap> seen, List<Overlap> matches) {
+            if (segments.isEmpty()) {
+                collectCloser(all, overlap, bases, seen, matches);
+                return;
+            }
+            for (int s = 0; s < segments.size(); s++) {
+                List<Entry> candidates = segments.get(s).get(bases.maskKey(bounds[s], bounds[s + 1]));
+                if (candidates != null) {
+                    collectCloser(candidates, overlap, bases, seen, matches);
+                }
+            }
+        }
+
+        //A sequence can share several segments with the query, so skip those already seen
+        void collectCloser(List<Entry> candidates, Overlap overlap, BaseSequence bases,
+                           Set<Overlap> seen, List<Overlap> matches) {
+            for (Entry entry : candidates) {
+                if (entry.overlap != overlap && !seen.contains(entry.overlap)
+                        && BaseSequence.numDifferences(bases, entry.bases, differencesNeeded) < differencesNeeded) {
+                    seen.add(entry.overlap);
+                    matches.add(entry.overlap);
+                }
+            }
+        }
+
+        //Query a sequence of another length
+        boolean scanAny(Overlap overlap, BaseSequence bases) {
+            return anyCloser(all, overlap, bases);
+        }
+
+        private boolean anyCloser(List<Entry> candidates, Overlap overlap, BaseSequence bases) {
+            for (Entry entry : candidates) {
+                if (entry.overlap != overlap
+                        && BaseSequence.numDifferences(bases, entry.bases, differencesNeeded) < differencesNeeded) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Chooses the codon swaps that make overlaps unique. The greedy strategy (run by {@link Library} itself)
+ * fixes one overlap at a time and never revisits it; the min-conflicts strategy starts from the overlaps
+ * as they are and repeatedly picks a random overlap in conflict (too close to another overlap, or next to
+ * a restriction site), changing the one swap of it that leaves the fewest conflicts, or sometimes a
+ * random one, until no conflicts are left or the budget of steps runs out. The search is seeded, so
+ * the same library always comes out the same.
+ */
+public class OverlapSolver {
+    public static final int DEFAULT_MAX_STEPS = 100000;
+
+    public enum Strategy {
+        /**
+         * Make each overlap unique in turn, trying every combination of its swaps
+         */
+        GREEDY,
+        /**
+         * Search over the swaps of every overlap at once, minimizing the number of conflicts
+         */
+        MIN_CONFLICTS
+    }
+
+    //The chance of making a random change instead of the best one
+    private static final double NOISE = 0.1;
+
+    /**
+     * What is being changed: the swaps are made with swap, and hasRestriction reports a site
+     */
+    interface Target {
+        /**
+         * Swap a codon of an overlap with a codon of its attachments (the same swap undoes it)
+         *
+         * @param attachIndex the attachment codon, as from Library's potential swaps; negative means do nothing
+         */
+        void swap(Overlap overlap, int overlapIndex, int attachIndex);
+
+        /**
+         * @return whether a gene through the oligos on either side of the overlaps at a position has a site
+         */
+        boolean hasRestriction(int pos);
+
+        /**
+         * @return whether a gene has a site too long to lie within two oligos, which hasRestriction can miss
+         */
+        boolean hasLongRestriction();
+    }
+
+    private final Strategy strategy;
+    private final int maxSteps;
+    private final long seed;
+
+    public OverlapSolver(Strategy strategy, int maxSteps, long seed) {
+        checkArgument(maxSteps > 0, "Need at least one step to search");
+        this.strategy = checkNotNull(strategy);
+        this.maxSteps = maxSteps;
+        this.seed = seed;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Make every overlap differ enough from every other one by a min-conflicts search
+     *
+     * @param overlaps          the overlaps at each position
+     * @param potentialSwaps    for each position, the attachment codons each overlap codon can swap with
+     * @param differencesNeeded the number of differences needed between any two overlaps
+     * @param target            makes the swaps and checks for restriction sites
+     * @return the number of steps it took, or -1 if the budget ran out
+     */
+    int solve(Map<Integer, List<Overlap>> overlaps, Map<Integer, Map<Integer, List<Integer>>> potentialSwaps,
+              int differencesNeeded, Target target) {
+        return new Search(overlaps, potentialSwaps, differencesNeeded, target, new Random(seed)).run(maxSteps);
+    }
+
+    /**
+     * The state of one overlap: the swap made for each of its codons, and how many overlaps are too close
+     */
+    private static class State {
+        final Overlap overlap;
+        final int pos;
+        final int[] swap;
+        int conflicts = 0;
+        //Where it is in the list of overlaps in conflict, or -1
+        int conflictedIndex = -1;
+
+        State(Overlap overlap, int pos, int numSlots) {
+            this.overlap = overlap;
+            this.pos = pos;
+            this.swap = new int[numSlots];
+            for (int i = 0; i < numSlots; i++) {
+                swap[i] = -1;
+            }
+        }
+    }
+
+    private static class Search {
+        private final Map<Integer, List<Overlap>> overlaps;
+        private final Target target;
+        private final Random random;
+        private final OverlapIndex index;
+        private final Map<Overlap, State> states = new IdentityHashMap<>();
+        //For each position: the overlap codon of each slot, and the attachment codons it can swap with
+        private final Map<Integer, int[]> slotCodons = new TreeMap<>();
+        private final Map<Integer, int[][]> slotCandidates = new TreeMap<>();
+        private final int numPositions;
+        private final boolean[] restricted;
+        private final List<State> conflicted = Lists.newArrayList();
+        //A restriction site outweighs any number of overlaps being too close
+        private final int restrictionPenalty;
+
+        Search(Map<Integer, List<Overlap>> overlaps, Map<Integer, Map<Integer, List<Integer>>> potentialSwaps,
+               int differencesNeeded, Target target, Random random) {
+            this.overlaps = overlaps;
+            this.target = target;
+            this.random = random;
+            this.index = new OverlapIndex(differencesNeeded);
+            int numOverlaps = 0;
+            int maxPos = -1;
+            for (Map.Entry<Integer, List<Overlap>> entry : overlaps.entrySet()) {
+                int pos = entry.getKey();
+                maxPos = Math.max(maxPos, pos);
+                TreeMap<Integer, List<Integer>> swaps = new TreeMap<>();
+                if (potentialSwaps.containsKey(pos)) {
+                    swaps.putAll(potentialSwaps.get(pos));
+                }
+                int[] codons = new int[swaps.size()];
+                int[][] candidates = new int[swaps.size()][];
+                int slot = 0;
+                for (Map.Entry<Integer, List<Integer>> swap : swaps.entrySet()) {
+                    codons[slot] = swap.getKey();
+                    candidates[slot] = new int[swap.getValue().size()];
+                    for (int i = 0; i < candidates[slot].length; i++) {
+                        candidates[slot][i] = swap.getValue().get(i);
+                    }
+                    slot++;
+                }
+                slotCodons.put(pos, codons);
+                slotCandidates.put(pos, candidates);
+                for (Overlap overlap : entry.getValue()) {
+                    states.put(overlap, new State(overlap, pos, codons.length));
+                    index.add(overlap);
+                    numOverlaps++;
+                }
+            }
+            this.numPositions = maxPos + 1;
+            this.restricted = new boolean[numPositions];
+            this.restrictionPenalty = numOverlaps + 1;
+
+            for (int pos = 0; pos < numPositions; pos++) {
+                restricted[pos] = target.hasRestriction(pos);
+            }
+            //Go through the overlaps in order so that the search only depends on the seed
+            for (int pos = 0; pos < numPositions; pos++) {
+                List<Overlap> atPosition = overlaps.get(pos);
+                if (atPosition == null) continue;
+                for (Overlap overlap : atPosition) {
+                    State state = states.get(overlap);
+                    state.conflicts = index.findMatches(overlap).size();
+                    refresh(state);
+                }
+            }
+        }
+
+        int run(int maxSteps) {
+            for (int step = 0; ; step++) {
+                LibraryUtils.checkInterrupt();
+                if (conflicted.isEmpty()) {
+                    //Sites too long to lie within two oligos are only found by checking everything
+                    return target.hasLongRestriction() ? -1 : step;
+                }
+                if (step >= maxSteps) return -1;
+                move(conflicted.get(random.nextInt(conflicted.size())));
+            }
+        }
+
+        //Change one swap of an overlap, to the one leaving it the fewest conflicts (or, sometimes, at random)
+        private void move(State state) {
+            Overlap overlap = state.overlap;
+            int pos = state.pos;
+            List<Overlap> touched = index.findMatches(overlap);
+            for (Overlap neighbour : touched) {
+                states.get(neighbour).conflicts--;
+            }
+            index.remove(overlap);
+
+            //Every change of one slot to a swap no other slot is using (or to no swap)
+            int[][] candidates = slotCandidates.get(pos);
+            List<int[]> moves = Lists.newArrayList();
+            for (int slot = 0; slot < candidates.length; slot++) {
+                if (state.swap[slot] >= 0) {
+                    moves.add(new int[]{slot, -1});
+                }
+                for (int candidate : candidates[slot]) {
+                    if (!isUsed(state.swap, candidate)) {
+                        moves.add(new int[]{slot, candidate});
+                    }
+                }
+            }
+
+            if (!moves.isEmpty() && random.nextDouble() < NOISE) {
+                int[] chosen = moves.get(random.nextInt(moves.size()));
+                change(state, chosen[0], chosen[1]);
+            } else if (!moves.isEmpty()) {
+                //Keep the current swaps unless some change is at least as good; pick randomly among the best
+                List<int[]> best = Lists.newArrayList();
+                int bestCost = cost(state, Integer.MAX_VALUE);
+                for (int[] candidate : moves) {
+                    int previous = change(state, candidate[0], candidate[1]);
+                    int cost = cost(state, bestCost);
+                    change(state, candidate[0], previous);
+                    if (cost < bestCost) {
+                        best.clear();
+                        bestCost = cost;
+                    }
+                    if (cost == bestCost) best.add(candidate);
+                }
+                if (!best.isEmpty()) {
+                    int[] chosen = best.get(random.nextInt(best.size()));
+                    change(state, chosen[0], chosen[1]);
+                }
+            }
+
+            index.add(overlap);
+            List<Overlap> matches = index.findMatches(overlap);
+            state.conflicts = matches.size();
+            for (Overlap neighbour : matches) {
+                states.get(neighbour).conflicts++;
+            }
+            touched.addAll(matches);
+            for (int p = Math.max(0, pos - 1); p <= Math.min(numPositions - 1, pos + 1); p++) {
+                restricted[p] = target.hasRestriction(p);
+            }
+            //Conflicts changed for the old and new neighbours, and sites for every overlap within two positions
+            for (int p = Math.max(0, pos - 2); p <= Math.min(numPositions - 1, pos + 2); p++) {
+                List<Overlap> atPosition = overlaps.get(p);
+                if (atPosition != null) touched.addAll(atPosition);
+            }
+            for (Overlap other : touched) {
+                refresh(states.get(other));
+            }
+        }
+
+        private static boolean isUsed(int[] swap, int candidate) {
+            for (int used : swap) {
+                if (used == candidate) return true;
+            }
+            return false;
+        }
+
+        //Change the swap of a slot (taking back the one before it); returns the one before
+        private int change(State state, int slot, int swap) {
+            int overlapIndex = slotCodons.get(state.pos)[slot];
+            int previous = state.swap[slot];
+            target.swap(state.overlap, overlapIndex, previous);
+            target.swap(state.overlap, overlapIndex, swap);
+            state.swap[slot] = swap;
+            return previous;
+        }
+
+        //The conflicts of an overlap that is not in the index, and the sites next to it;
+        //once it is over the bound, some number over the bound (sites are slow to look for)
+        private int cost(State state, int bound) {
+            int cost = index.findMatches(state.overlap).size();
+            for (int p = Math.max(0, state.pos - 1); p <= Math.min(numPositions - 1, state.pos + 1); p++) {
+                if (cost > bound) break;
+                if (target.hasRestriction(p)) cost += restrictionPenalty;
+            }
+            return cost;
+        }
+
+        //Add an overlap to, or take it out of, the list of overlaps in conflict
+        private void refresh(State state) {
+            boolean inConflict = state.conflicts > 0;
+            for (int p = Math.max(0, state.pos - 1); p <= Math.min(numPositions - 1, state.pos + 1); p++) {
+                inConflict |= restricted[p];
+            }
+            if (inConflict && state.conflictedIndex < 0) {
+                state.conflictedIndex = conflicted.size();
+                conflicted.add(state);
+            } else if (!inConflict && state.conflictedIndex >= 0) {
+                //Move the last overlap into its place
+                State last = conflicted.remove(conflicted.size() - 1);
+                if (last != state) {
+                    conflicted.set(state.conflictedIndex, last);
+                    last.conflictedIndex = state.conflictedIndex;
+                }
+                state.conflictedIndex = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.tcnj.oligos.library;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scores genes by the oligos they are assembled from. A gene's codon pairs are the pairs inside its
+ * first oligo, plus, for every later oligo, the pairs from the last codon of its overlap onwards
+ * (the overlap itself was already counted with the oligo before). Each oligo's share of the pair
+ * values and of the pair count is computed once and cached, so scoring a gene is a sum over its path.
+ * With no overlap the pair across each junction spans two oligos, and is looked up per gene.
+ * Not thread-safe.
+ */
+class PathScorer {
+    private final CodonPairScorer scorer;
+    private final int overlapLength;
+    //Per oligo: {sum, count} over every pair, then {sum, count} over the pairs after the overlap
+    private final Map<Oligo, double[]> contributions = new IdentityHashMap<>();
+
+    PathScorer(CodonPairScorer scorer, int overlapLength) {
+        this.scorer = scorer;
+        this.overlapLength = overlapLength;
+    }
+
+    /**
+     * Score the gene assembled from a path of oligos
+     *
+     * @param path one oligo per position, as from {@link GeneIterator#getPath()}
+     * @return the codon pair score divided by the number of pairs scored, or null if no pair could be scored
+     */
+    Double score(List<Oligo> path) {
+        double sum = 0;
+        int pairs = 0;
+        for (int i = 0; i < path.size(); i++) {
+            Oligo oligo = path.get(i);
+            double[] contribution = getContribution(oligo);
+            int offset = i == 0 ? 0 : 2;
+            sum += contribution[offset];
+            pairs += (int) contribution[offset + 1];
+            if (i > 0 && overlapLength == 0) {
+                double value = junctionValue(path.get(i - 1), oligo);
+                if (!Double.isNaN(value)) {
+                    sum += value;
+                    pairs++;
+                }
+            }
+        }
+        return pairs == 0 ? null : sum / pairs;
+    }
+
+    /**
+     * The share of a gene's pair values and pairs that an oligo adds when it follows another: its pairs after
+     * the overlap and, without overlaps, the pair across the junction. It is the same for every oligo ending
+     * in the same overlap (or, without overlaps, codon) as the one it follows.
+     *
+     * @return {sum, count}, or null if the oligo can't follow the other
+     */
+    double[] getShift(Oligo previous, Oligo oligo) {
+        if (overlapLength > 0 && !LibraryUtils.connects(previous, oligo, overlapLength)) return null;
+        double[] contribution = getContribution(oligo);
+        double[] shift = {contribution[2], contribution[3]};
+        if (overlapLength == 0) {
+            double value = junctionValue(previous, oligo);
+            if (!Double.isNaN(value)) {
+                shift[0] += value;
+                shift[1]++;
+            }
+        }
+        return shift;
+    }
+
+    //The value of the pair across the junction of two oligos without an overlap, or NaN if there is none
+    private double junctionValue(Oligo previous, Oligo oligo) {
+        if (previous.size() == 0 || oligo.size() == 0) return Double.NaN;
+        return scorer.getValue(previous.get(previous.size() - 1), oligo.get(0));
+    }
+
+    //{sum, count} of an oligo's pair values when it starts a gene, then when it follows another oligo
+    double[] getContribution(Oligo oligo) {
+        double[] contribution = contributions.get(oligo);
+        if (contribution == null) {
+            contribution = new double[4];
+            int laterFrom = Math.max(overlapLength - 1, 0);
+            for (int i = 0; i + 1 < oligo.size(); i++) {
+                double value = scorer.getValue(oligo.get(i), oligo.get(i + 1));
+                if (Double.isNaN(value)) continue;
+                contribution[0] += value;
+                contribution[1]++;
+                if (i >= laterFrom) {
+                    contribution[2] += value;
+                    contribution[3]++;
+                }
+            }
+            contributions.put(oligo, contribution);
+        }
+        return contribution;
+    }
+}
@@ -0,0 +1,161 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import edu.tcnj.oligos.data.Codon;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Places the codons of one amino acid over every spot of that acid in a sequence: a given number of
+ * the codon of interest (only in the spots allowed for it) and given numbers of each other codon,
+ * without creating restriction sites. Spots are assigned in order by a randomized depth-first search;
+ * spots not yet assigned hold PAD (which matches nothing), so after each assignment only the bases
+ * within reach of that codon need to be checked for sites. One attempt is one codon tried in one spot.
+ */
+class PlacementEngine {
+    static final int DEFAULT_MAX_ATTEMPTS = 1000000;
+
+    private final int maxAttempts;
+    private final Random random;
+
+    PlacementEngine(int maxAttempts) {
+        this(maxAttempts, new Random());
+    }
+
+    PlacementEngine(int maxAttempts, Random random) {
+        checkArgument(maxAttempts > 0, "Need at least one attempt to place codons");
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Place the codons; on failure the spots are left holding PAD
+     *
+     * @param sequence        the sequence to place codons in, otherwise free of restriction sites
+     * @param spots           every spot to be filled
+     * @param potentialSpots  the spots that may hold the codon of interest
+     * @param codonOfInterest the codon of interest
+     * @param coiCount        how many spots get the codon of interest
+     * @param otherCounts     how many spots get each other codon (the counts add up to the remaining spots)
+     * @param scanner         the compiled restriction sites to be avoided
+     * @return the number of attempts used, or -1 if no placement was found within the budget
+     */
+    int place(Sequence sequence, Collection<Integer> spots, Collection<Integer> potentialSpots,
+              Codon codonOfInterest, int coiCount, Map<Codon, Integer> otherCounts, RestrictionScanner scanner) {
+        Search search = new Search(sequence, spots, potentialSpots, codonOfInterest, coiCount,
+                otherCounts, scanner);
+        return search.run();
+    }
+
+    private class Search {
+        private final Sequence sequence;
+        private final RestrictionScanner scanner;
+        private final int[] spots;
+        private final boolean[] potential;
+        //potentialFrom[k]: the number of potential spots among spots[k, end)
+        private final int[] potentialFrom;
+        //values[0] is the codon of interest; remaining[v] is how many more spots get values[v]
+        private final Codon[] values;
+        private final int[] remaining;
+        private int attempts = 0;
+
+        Search(Sequence sequence, Collection<Integer> spots, Collection<Integer> potentialSpots,
+               Codon codonOfInterest, int coiCount, Map<Codon, Integer> otherCounts, RestrictionScanner scanner) {
+            this.sequence = sequence;
+            this.scanner = scanner;
+            this.spots = Ints.toArray(spots);
+            Arrays.sort(this.spots);
+            this.potential = new boolean[this.spots.length];
+            this.potentialFrom = new int[this.spots.length + 1];
+            for (int k = this.spots.length - 1; k >= 0; k--) {
+                potential[k] = potentialSpots.contains(this.spots[k]);
+                potentialFrom[k] = potentialFrom[k + 1] + (potential[k] ? 1 : 0);
+            }
+            this.values = new Codon[otherCounts.size() + 1];
+            this.remaining = new int[values.length];
+            values[0] = codonOfInterest;
+            remaining[0] = coiCount;
+            int v = 1;
+            for (Map.Entry<Codon, Integer> entry : otherCounts.entrySet()) {
+                values[v] = entry.getKey();
+                remaining[v] = entry.getValue();
+                v++;
+            }
+        }
+
+        int run() {
+            int total = 0;
+            for (int count : remaining) {
+                total += count;
+            }
+            checkArgument(total == spots.length, "Codon counts do not match the number of spots");
+            for (int spot : spots) {
+                sequence.set(spot, Codon.PAD);
+            }
+            //The codon of interest has to fit in its spots, and sites that do not touch a spot cannot be fixed here
+            if (remaining[0] > potentialFrom[0] || LibraryUtils.containsRestrictionEnzyme(sequence, scanner)) {
+                return -1;
+            }
+            return assign(0) ? attempts : -1;
+        }
+
+        //Assign spots[k, end), trying codons for spots[k] in random order weighted by how many are left
+        private boolean assign(int k) {
+            if (k == spots.length) return true;
+            LibraryUtils.checkInterrupt();
+            List<Integer> candidates = Lists.newArrayList();
+            for (int v = 0; v < values.length; v++) {
+                if (remaining[v] == 0) continue;
+                if (v == 0 && !potential[k]) continue;
+                //Any other codon here still has to leave enough potential spots for the codon of interest
+                if (v != 0 && remaining[0] > potentialFrom[k + 1]) continue;
+                candidates.add(v);
+            }
+            while (!candidates.isEmpty()) {
+                if (attempts >= maxAttempts) return false;
+                attempts++;
+                int v = candidates.remove(pickWeighted(candidates));
+                sequence.setOrdinal(spots[k], values[v].ordinal());
+                remaining[v]--;
+                if (!createsSite(spots[k]) && assign(k + 1)) return true;
+                remaining[v]++;
+            }
+            sequence.set(spots[k], Codon.PAD);
+            return false;
+        }
+
+        private int pickWeighted(List<Integer> candidates) {
+            int total = 0;
+            for (int v : candidates) {
+                total += remaining[v];
+            }
+            int pick = random.nextInt(total);
+            for (int i = 0; i < candidates.size(); i++) {
+                pick -= remaining[candidates.get(i)];
+                if (pick < 0) return i;
+            }
+            return candidates.size() - 1;
+        }
+
+        //Check for a site lying within reach of the codon at spot
+        private boolean createsSite(int spot) {
+            if (scanner.isEmpty()) return false;
+            BaseSequence bases = sequence.asBases();
+            int reach = scanner.getLongestSite() - 1;
+            int from = Math.max(0, spot * 3 - reach);
+            int to = Math.min(bases.size(), spot * 3 + 3 + reach);
+            return scanner.containsAny(bases, from, to);
+        }
+    }
+}
@@ -48,7 +48,7 @@ public class Protein extends Sequence {
             }
         }
         this.aaSeq = Collections.unmodifiableList(tempSeq);
-        this.setSequence(Collections.unmodifiableList(tempCodons));
+        this.setSequence(tempCodons);
     }
 
     /**
@@ -59,7 +59,7 @@ public class Protein extends Sequence {
     public Protein(String string) {
         super(string);
         this.aaSeq = Lists.newArrayList();
-        for (Codon codon : this.sequence) {
+        for (Codon codon : this) {
             this.aaSeq.add(codon.getAminoAcid());
         }
         this.aaSeq = Collections.unmodifiableList(aaSeq);
@@ -69,11 +69,27 @@ public class Protein extends Sequence {
         return aaSeq;
     }
 
+    //The codons of a protein can only be replaced as a whole (through setSequence)
+    @Override
+    public int setOrdinal(int index, int ordinal) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(int index, Codon element) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Codon remove(int index) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("aaSeq", Joiner.on("").join(aaSeq))
-                .add("seq", Joiner.on("").join(sequence))
+                .add("seq", super.toString())
                 .toString();
     }
 }
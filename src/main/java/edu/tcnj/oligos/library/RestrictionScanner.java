@@ -0,0 +1,307 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Finds occurrences of a whole list of restriction sites in a single pass over a BaseSequence.
+ * Degenerate sites (e.g. VCTCGAGB) are expanded into all of their concrete A/C/G/T variants,
+ * which are compiled into an Aho-Corasick automaton; the cost of a scan is then linear in the
+ * length of the sequence no matter how many sites are being screened for.
+ */
+public class RestrictionScanner {
+    private static final int ALPHABET = 4;
+    private static final int ROOT = 0;
+
+    private final List<BaseSequence> restrictions;
+    //transitions[state * ALPHABET + symbol] is the next state, with failure links already followed
+    private final int[] transitions;
+    //outputs[state] holds the indices of every restriction that ends when the automaton reaches state
+    private final int[][] outputs;
+    private final int longestSite;
+
+    private RestrictionScanner(List<BaseSequence> restrictions, int[] transitions, int[][] outputs, int longestSite) {
+        this.restrictions = restrictions;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.longestSite = longestSite;
+    }
+
+    /**
+     * Compile a scanner for the given restriction sites
+     *
+     * @param restrictions the sites to search for; null or empty gives a scanner that never matches
+     * @return a scanner reporting hits by the index of the site in restrictions
+     */
+    public static RestrictionScanner compile(List<BaseSequence> restrictions) {
+        List<BaseSequence> sites = restrictions == null
+                ? Collections.<BaseSequence>emptyList()
+                : Collections.unmodifiableList(Lists.newArrayList(restrictions));
+
+        //Build the trie of every concrete expansion of every site
+        List<int[]> children = Lists.newArrayList();
+        List<List<Integer>> ends = Lists.newArrayList();
+        children.add(newNode());
+        ends.add(Lists.<Integer>newArrayList());
+        int longestSite = 0;
+        for (int i = 0; i < sites.size(); i++) {
+            BaseSequence site = sites.get(i);
+            if (site.isEmpty()) continue;
+            longestSite = Math.max(longestSite, site.size());
+            insertExpansions(site, 0, ROOT, i, children, ends);
+        }
+
+        //Breadth-first: resolve failure links into a complete transition table, and merge outputs
+        int numStates = children.size();
+        int[] transitions = new int[numStates * ALPHABET];
+        int[] fail = new int[numStates];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            int child = children.get(ROOT)[symbol];
+            if (child == -1) {
+                transitions[ROOT * ALPHABET + symbol] = ROOT;
+            } else {
+                transitions[ROOT * ALPHABET + symbol] = child;
+                fail[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            List<Integer> inherited = ends.get(fail[state]);
+            for (Integer index : inherited) {
+                if (!ends.get(state).contains(index)) ends.get(state).add(index);
+            }
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int child = children.get(state)[symbol];
+                int viaFail = transitions[fail[state] * ALPHABET + symbol];
+                if (child == -1) {
+                    transitions[state * ALPHABET + symbol] = viaFail;
+                } else {
+                    transitions[state * ALPHABET + symbol] = child;
+                    fail[child] = viaFail;
+                    queue.add(child);
+                }
+            }
+        }
+        int[][] outputs = new int[numStates][];
+        for (int state = 0; state < numStates; state++) {
+            outputs[state] = Ints.toArray(ends.get(state));
+        }
+        return new RestrictionScanner(sites, transitions, outputs, longestSite);
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    //Recursively add every concrete variant of site (from index pos on) to the trie below state
+    private static void insertExpansions(BaseSequence site, int pos, int state, int restrictionIndex,
+                                         List<int[]> children, List<List<Integer>> ends) {
+        if (pos == site.size()) {
+            if (!ends.get(state).contains(restrictionIndex)) ends.get(state).add(restrictionIndex);
+            return;
+        }
+        int mask = site.getMask(pos);
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            if ((mask & (1 << symbol)) == 0) continue;
+            int child = children.get(state)[symbol];
+            if (child == -1) {
+                child = children.size();
+                children.add(newNode());
+                ends.add(Lists.<Integer>newArrayList());
+                children.get(state)[symbol] = child;
+            }
+            insertExpansions(site, pos + 1, child, restrictionIndex, children, ends);
+        }
+    }
+
+    public List<BaseSequence> getRestrictions() {
+        return restrictions;
+    }
+
+    public boolean isEmpty() {
+        return longestSite == 0;
+    }
+
+    /**
+     * @return the length of the longest restriction site, in bases
+     */
+    public int getLongestSite() {
+        return longestSite;
+    }
+
+    /**
+     * Determine whether the sequence contains any restriction site
+     */
+    public boolean containsAny(BaseSequence sequence) {
+        return containsAny(sequence, 0, sequence.size());
+    }
+
+    /**
+     * Determine whether any restriction site lies entirely within bases [from, to) of the sequence
+     */
+    public boolean containsAny(BaseSequence sequence, int from, int to) {
+        return findFirst(sequence, from, to) != null;
+    }
+
+    /**
+     * Find the first restriction site (by end position) lying entirely within bases [from, to) of the sequence
+     *
+     * @return the hit, or null if there is none
+     */
+    public Hit findFirst(BaseSequence sequence, int from, int to) {
+        List<Hit> hits = scan(sequence, from, to, null, true);
+        return hits.isEmpty() ? null : hits.get(0);
+    }
+
+    /**
+     * Find every occurrence of every restriction site in the sequence
+     *
+     * @return the hits, ordered by the position where each site ends
+     */
+    public List<Hit> findAll(BaseSequence sequence) {
+        return findAll(sequence, 0, sequence.size());
+    }
+
+    /**
+     * Find every occurrence of a restriction site lying entirely within bases [from, to) of the sequence
+     *
+     * @return the hits, ordered by the position where each site ends
+     */
+    public List<Hit> findAll(BaseSequence sequence, int from, int to) {
+        return scan(sequence, from, to, Lists.<Hit>newArrayList(), false);
+    }
+
+    /**
+     * Find the first position of every restriction site in one pass
+     *
+     * @return an array holding, for each restriction (by index), the position of
+     * its first occurrence in the sequence, or -1 if it does not occur
+     */
+    public int[] firstPositions(BaseSequence sequence) {
+        int[] first = new int[restrictions.size()];
+        Arrays.fill(first, -1);
+        for (Hit hit : findAll(sequence)) {
+            int index = hit.getRestriction();
+            if (first[index] == -1 || hit.getPosition() < first[index]) {
+                first[index] = hit.getPosition();
+            }
+        }
+        return first;
+    }
+
+    //Run the automaton over [from, to). Concrete bases follow a single state; a degenerate base
+    //(such as N) forks into every concrete base it stands for, and a padding base (Z) matches nothing.
+    private List<Hit> scan(BaseSequence sequence, int from, int to, List<Hit> hits, boolean stopAtFirst) {
+        checkPositionIndexes(from, to, sequence.size());
+        List<Hit> found = hits == null ? Lists.<Hit>newArrayListWithCapacity(1) : hits;
+        if (isEmpty()) return found;
+        int state = ROOT;
+        //Buffers for following several states, allocated on the first degenerate base and reused after
+        int[] states = null;
+        int[] next = null;
+        BitSet seen = null;
+        BitSet reported = null;
+        int numStates = 0;
+        for (int i = from; i < to; i++) {
+            int mask = sequence.getMask(i);
+            if (mask == 0) {
+                state = ROOT;
+                numStates = 0;
+                continue;
+            }
+            if (numStates == 0 && Integer.bitCount(mask) == 1) {
+                state = transitions[state * ALPHABET + Integer.numberOfTrailingZeros(mask)];
+                for (int index : outputs[state]) {
+                    found.add(new Hit(i - restrictions.get(index).size() + 1, index));
+                    if (stopAtFirst) return found;
+                }
+                continue;
+            }
+            //Degenerate base, or still following several states from an earlier one
+            if (states == null) {
+                states = new int[outputs.length];
+                next = new int[outputs.length];
+                seen = new BitSet(outputs.length);
+                reported = new BitSet(restrictions.size());
+            }
+            if (numStates == 0) {
+                states[0] = state;
+                numStates = 1;
+            }
+            int numNext = 0;
+            reported.clear();
+            for (int s = 0; s < numStates; s++) {
+                for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                    if ((mask & (1 << symbol)) == 0) continue;
+                    int target = transitions[states[s] * ALPHABET + symbol];
+                    if (seen.get(target)) continue;
+                    seen.set(target);
+                    next[numNext++] = target;
+                    for (int index : outputs[target]) {
+                        if (reported.get(index)) continue;
+                        reported.set(index);
+                        found.add(new Hit(i - restrictions.get(index).size() + 1, index));
+                        if (stopAtFirst) return found;
+                    }
+                }
+            }
+            //Only the states just reached are marked seen
+            for (int n = 0; n < numNext; n++) {
+                seen.clear(next[n]);
+            }
+            int[] swap = states;
+            states = next;
+            next = swap;
+            numStates = numNext;
+            if (numStates == 1) {
+                state = states[0];
+                numStates = 0;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * An occurrence of a restriction site: where it starts (in bases), and which restriction it is
+     */
+    public static class Hit {
+        private final int position;
+        private final int restriction;
+
+        Hit(int position, int restriction) {
+            this.position = position;
+            this.restriction = restriction;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the index of the matched site in the scanner's list of restrictions
+         */
+        public int getRestriction() {
+            return restriction;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("position", position)
+                    .add("restriction", restriction).toString();
+        }
+    }
+}
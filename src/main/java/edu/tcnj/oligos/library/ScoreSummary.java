@@ -0,0 +1,267 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Statistics of the codon pair scores of every gene that can be assembled from the oligos in a range,
+ * computed without assembling any genes. A gene's score is its sum of pair values over its number of pairs,
+ * and both are sums of per-oligo shares (see {@link PathScorer}); so, like {@link GeneCount}, partial genes
+ * are grouped by the overlap they end in (and by their number of pairs), and each group keeps the count,
+ * mean, spread, minimum and maximum of its partial sums. Every oligo continuing a group shifts all of them
+ * by the same amount. A second pass does the same with partial sums rounded to a fine grid to fill a
+ * histogram; each score is placed to within 1/32 of a bin of its exact value.
+ * Genes without any scored pair have no score and are left out.
+ */
+public class ScoreSummary {
+    private final long count;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double variance;
+    private final long[] histogram;
+    private final double binWidth;
+
+    private ScoreSummary(long count, double min, double max, double mean, double variance,
+                         long[] histogram, double binWidth) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.variance = variance;
+        this.histogram = histogram;
+        this.binWidth = binWidth;
+    }
+
+    /**
+     * Summarize the scores of the genes assembled from the oligos in a range
+     *
+     * @param range         the range of oligo positions (inclusive)
+     * @param oligos        the oligos at each position
+     * @param overlapLength the length of an overlap
+     * @param scorer        the codon pair values
+     * @param numBins       the number of histogram bins, spread evenly from the lowest score to the highest
+     * @return the summary
+     */
+    static ScoreSummary summarize(Fragment.Range range, Map<Integer, List<Oligo>> oligos, int overlapLength,
+                                  CodonPairScorer scorer, int numBins) {
+        checkArgument(numBins > 0, "Need at least one bin");
+        PathScorer pathScorer = new PathScorer(scorer, overlapLength);
+        Map<Integer, Node> sums = propagate(range, oligos, overlapLength, pathScorer, 0);
+
+        //Turn sums into scores (sum / pairs) and combine the groups
+        Node scores = new Node(false);
+        int minPairs = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Node> entry : sums.entrySet()) {
+            int pairs = entry.getKey();
+            if (pairs == 0) continue;
+            minPairs = Math.min(minPairs, pairs);
+            Node node = entry.getValue();
+            Node scaled = new Node(false);
+            scaled.count = node.count;
+            scaled.mean = node.mean / pairs;
+            scaled.m2 = node.m2 / ((double) pairs * pairs);
+            scaled.min = node.min / pairs;
+            scaled.max = node.max / pairs;
+            scores.add(scaled, 0, 0);
+        }
+        long[] histogram = new long[numBins];
+        if (scores.count == 0) {
+            return new ScoreSummary(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, histogram, 0);
+        }
+        double binWidth = (scores.max - scores.min) / numBins;
+        if (binWidth == 0) {
+            histogram[0] = scores.count;
+        } else {
+            //Rounding error is at most half a grid step per position (oligo plus junction)
+            int positions = range.getEndPosition() - range.getStartPosition() + 1;
+            double quantum = binWidth * minPairs / (16.0 * positions);
+            sums = propagate(range, oligos, overlapLength, pathScorer, quantum);
+            for (Map.Entry<Integer, Node> entry : sums.entrySet()) {
+                int pairs = entry.getKey();
+                if (pairs == 0) continue;
+                for (Map.Entry<Long, Long> cell : entry.getValue().cells.entrySet()) {
+                    double score = cell.getKey() * quantum / pairs;
+                    int bin = (int) Math.floor((score - scores.min) / binWidth);
+                    histogram[Math.max(0, Math.min(numBins - 1, bin))] += cell.getValue();
+                }
+            }
+        }
+        return new ScoreSummary(scores.count, scores.min, scores.max, scores.mean, scores.m2 / scores.count,
+                histogram, binWidth);
+    }
+
+    //Sums of pair values of every gene, grouped by number of pairs; on a grid of the given step if it is > 0
+    private static Map<Integer, Node> propagate(Fragment.Range range, Map<Integer, List<Oligo>> oligos,
+                                                int overlapLength, PathScorer pathScorer, double quantum) {
+        boolean withCells = quantum > 0;
+        int start = range.getStartPosition();
+        List<Map<Integer, Node>> here = Lists.newArrayList();
+        for (Oligo oligo : oligos.get(start)) {
+            double[] contribution = pathScorer.getContribution(oligo);
+            Map<Integer, Node> groups = Maps.newHashMap();
+            Node empty = Node.empty(withCells);
+            groups.put((int) contribution[1], shifted(empty, contribution[0], quantum));
+            here.add(groups);
+        }
+        for (int pos = start + 1; pos <= range.getEndPosition(); pos++) {
+            LibraryUtils.checkInterrupt();
+            //Merge the partial genes ending in the same overlap (or, without overlaps, the same last codon)
+            List<Oligo> pre = oligos.get(pos - 1);
+            List<List<Integer>> ends = Lists.newArrayList(LibraryUtils.groupByEnd(pre, overlapLength).values());
+            List<Map<Integer, Node>> byEnd = Lists.newArrayList();
+            for (List<Integer> end : ends) {
+                Map<Integer, Node> groups = Maps.newHashMap();
+                for (int j : end) {
+                    for (Map.Entry<Integer, Node> entry : here.get(j).entrySet()) {
+                        node(groups, entry.getKey(), withCells).add(entry.getValue(), 0, 0);
+                    }
+                }
+                byEnd.add(groups);
+            }
+
+            List<Map<Integer, Node>> next = Lists.newArrayList();
+            for (Oligo oligo : oligos.get(pos)) {
+                Map<Integer, Node> groups = Maps.newHashMap();
+                for (int e = 0; e < ends.size(); e++) {
+                    double[] shift = pathScorer.getShift(pre.get(ends.get(e).get(0)), oligo);
+                    if (shift == null) continue;
+                    int pairs = (int) shift[1];
+                    long cellShift = withCells ? Math.round(shift[0] / quantum) : 0;
+                    for (Map.Entry<Integer, Node> entry : byEnd.get(e).entrySet()) {
+                        node(groups, entry.getKey() + pairs, withCells).add(entry.getValue(), shift[0], cellShift);
+                    }
+                }
+                next.add(groups);
+            }
+            here = next;
+        }
+
+        Map<Integer, Node> total = Maps.newHashMap();
+        for (Map<Integer, Node> groups : here) {
+            for (Map.Entry<Integer, Node> entry : groups.entrySet()) {
+                node(total, entry.getKey(), withCells).add(entry.getValue(), 0, 0);
+            }
+        }
+        return total;
+    }
+
+    private static Node shifted(Node node, double shift, double quantum) {
+        Node result = new Node(quantum > 0);
+        result.add(node, shift, quantum > 0 ? Math.round(shift / quantum) : 0);
+        return result;
+    }
+
+    private static Node node(Map<Integer, Node> groups, int pairs, boolean withCells) {
+        Node node = groups.get(pairs);
+        if (node == null) {
+            node = new Node(withCells);
+            groups.put(pairs, node);
+        }
+        return node;
+    }
+
+    /**
+     * A group of sums: how many, their mean, sum of squared differences from the mean, and range;
+     * optionally, how many fall on each grid cell
+     */
+    private static class Node {
+        long count = 0;
+        double mean = 0;
+        double m2 = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        final Map<Long, Long> cells;
+
+        Node(boolean withCells) {
+            this.cells = withCells ? Maps.<Long, Long>newHashMap() : null;
+        }
+
+        //The group holding only the empty sum
+        static Node empty(boolean withCells) {
+            Node node = new Node(withCells);
+            node.count = 1;
+            node.min = 0;
+            node.max = 0;
+            if (withCells) {
+                node.cells.put(0L, 1L);
+            }
+            return node;
+        }
+
+        //Add every sum of another group, each increased by shift (cellShift grid cells)
+        void add(Node other, double shift, long cellShift) {
+            if (other.count == 0) return;
+            long total = count + other.count;
+            double delta = other.mean + shift - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+            min = Math.min(min, other.min + shift);
+            max = Math.max(max, other.max + shift);
+            if (cells != null) {
+                for (Map.Entry<Long, Long> cell : other.cells.entrySet()) {
+                    Long key = cell.getKey() + cellShift;
+                    Long current = cells.get(key);
+                    cells.put(key, current == null ? cell.getValue() : current + cell.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of genes with a score
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the variance of the scores over every gene (not a sample estimate)
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    public int getNumBins() {
+        return histogram.length;
+    }
+
+    /**
+     * @return the width of each histogram bin; the first bin starts at the lowest score
+     */
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    /**
+     * Get the number of genes in a histogram bin. Scores are binned from sums rounded to a grid, so a score
+     * within width / 32 of a bin's edge may be counted in the bin on the other side of it.
+     *
+     * @param bin the index of the bin
+     * @return the number of genes scoring in [min + bin * width, min + (bin + 1) * width), give or take
+     * width / 32 at either edge; the last bin also holds the highest score
+     */
+    public long getBinCount(int bin) {
+        checkElementIndex(bin, histogram.length);
+        return histogram[bin];
+    }
+}
@@ -1,47 +1,123 @@
 package edu.tcnj.oligos.library;
 
-import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 import edu.tcnj.oligos.data.Base;
 import edu.tcnj.oligos.data.Codon;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
 /**
  * A list of codons, used to store RNA sequences.
  * Also contains helper methods to determine if sequences match.
+ * Codons are stored packed as their ordinals (one byte per codon);
+ * the List&lt;Codon&gt; methods are kept as a view over that storage.
+ * Sublists and copies share storage with the sequence they came from,
+ * and whichever side is mutated first copies its codons (copy-on-write).
  */
 public class Sequence extends AbstractList<Codon> {
-    protected List<Codon> sequence;
+    //Codon ordinals; this sequence is codons[offset, offset + length)
+    private byte[] codons;
+    private int offset;
+    private int length;
+    //True while the codons array may be referenced by another sequence
+    private boolean shared;
     private BaseSequence bases;
+    //Codons written since markClean(), and a snapshot of the codons at that point (null if not tracking)
+    private BitSet dirty;
+    private byte[] clean;
 
     Sequence() {
+        this.codons = new byte[0];
     }
 
-    //Operations on the underlying list
-    @Override
-    public int size() {
-        return sequence.size();
+    Sequence(byte[] codons, int length) {
+        this.codons = codons;
+        this.length = length;
     }
 
-    @Override
-    public Codon set(int index, Codon element) {
+    //Construct a view over another sequence's storage
+    private Sequence(byte[] codons, int offset, int length) {
+        this.codons = codons;
+        this.offset = offset;
+        this.length = length;
+        this.shared = true;
+    }
+
+    //Take a private copy of the codons before the first write to shared storage
+    private void ensureOwned() {
+        if (shared) {
+            codons = Arrays.copyOfRange(codons, offset, offset + length);
+            offset = 0;
+            shared = false;
+        }
+    }
+
+    /**
+     * Get the ordinal of the codon at the given index
+     *
+     * @param index the index of the codon
+     * @return the ordinal of the codon (see {@link Codon#fromOrdinal(int)})
+     */
+    public int getOrdinal(int index) {
+        checkElementIndex(index, length);
+        return codons[offset + index];
+    }
+
+    /**
+     * Set the codon at the given index by its ordinal
+     *
+     * @param index   the index of the codon
+     * @param ordinal the ordinal of the new codon
+     * @return the ordinal of the codon previously at that index
+     */
+    public int setOrdinal(int index, int ordinal) {
+        checkElementIndex(index, length);
+        ensureOwned();
+        int prev = codons[offset + index];
+        codons[offset + index] = (byte) ordinal;
+        if (dirty != null) {
+            dirty.set(index);
+        }
         if (bases != null) {
             int start = index * 3;
-            Base[] codonBase = element.toBases();
+            Base[] codonBase = Codon.fromOrdinal(ordinal).toBases();
             for (int i = 0; i < 3; i++) {
-                bases.set(i + start, codonBase[i]);
+                bases.setMask(i + start, codonBase[i].getMask());
             }
-
         }
-        return sequence.set(index, element);
+        return prev;
+    }
+
+    //Operations on the underlying list
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public Codon set(int index, Codon element) {
+        return Codon.fromOrdinal(setOrdinal(index, element.ordinal()));
     }
 
     @Override
     public void add(int index, Codon element) {
+        checkPositionIndex(index, length);
+        ensureOwned();
+        if (offset + length == codons.length) {
+            codons = Arrays.copyOfRange(codons, offset, offset + Math.max(8, length * 2));
+            offset = 0;
+        }
+        System.arraycopy(codons, offset + index, codons, offset + index + 1, length - index);
+        codons[offset + index] = (byte) element.ordinal();
+        length++;
+        stopTracking();
         if (bases != null) {
             int start = index * 3;
             Base[] codonBase = element.toBases();
@@ -49,33 +125,77 @@ public class Sequence extends AbstractList<Codon> {
                 bases.add(start + i, codonBase[i]);
             }
         }
-        sequence.add(index, element);
     }
 
     @Override
     public Codon remove(int index) {
+        checkElementIndex(index, length);
+        ensureOwned();
+        Codon prev = Codon.fromOrdinal(codons[offset + index]);
+        System.arraycopy(codons, offset + index + 1, codons, offset + index, length - index - 1);
+        length--;
+        stopTracking();
         if (bases != null) {
             int start = index * 3;
             for (int i = start + 2; i >= start; i--) {
                 bases.remove(i);
             }
         }
-        return sequence.remove(index);
+        return prev;
     }
 
     @Override
     public Codon get(int i) {
-        return sequence.get(i);
+        return Codon.fromOrdinal(getOrdinal(i));
     }
 
+    /**
+     * Get a subsequence without copying; the returned sequence shares this sequence's
+     * storage until either of them is changed. Unlike List.subList, changes made to one
+     * after the call are never visible in the other.
+     */
     @Override
     public Sequence subList(int fromIndex, int toIndex) {
-        return new Sequence(Lists.newArrayList(Arrays.copyOfRange(toArray(), fromIndex, toIndex)));
+        checkPositionIndexes(fromIndex, toIndex, length);
+        shared = true;
+        return new Sequence(codons, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    //Build a new sequence of all of first followed by second[secondFrom, second.size())
+    static Sequence concat(Sequence first, Sequence second, int secondFrom) {
+        int secondLength = second.length - secondFrom;
+        byte[] joined = new byte[first.length + secondLength];
+        System.arraycopy(first.codons, first.offset, joined, 0, first.length);
+        System.arraycopy(second.codons, second.offset + secondFrom, joined, first.length, secondLength);
+        return new Sequence(joined, joined.length);
+    }
+
+    //Build a new sequence from the parts, where each part after the first starts with the last overlap codons
+    //of the part before it (which are only included once)
+    static Sequence concat(List<? extends Sequence> parts, int overlap) {
+        int total = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            Sequence part = parts.get(i);
+            total += part.length - (i == 0 ? 0 : overlap);
+        }
+        byte[] joined = new byte[total];
+        int pos = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            Sequence part = parts.get(i);
+            int skip = i == 0 ? 0 : overlap;
+            System.arraycopy(part.codons, part.offset + skip, joined, pos, part.length - skip);
+            pos += part.length - skip;
+        }
+        return new Sequence(joined, total);
     }
 
     @Override
     public Codon[] toArray() {
-        return sequence.toArray(new Codon[sequence.size()]);
+        Codon[] array = new Codon[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = Codon.fromOrdinal(codons[offset + i]);
+        }
+        return array;
     }
 
     /**
@@ -88,39 +208,151 @@ public class Sequence extends AbstractList<Codon> {
             throw new IllegalArgumentException("Sequence constructed with invalid number of bases.");
         }
         char[] codonArray = codons.toCharArray();
-        List<Codon> tempSeq = new ArrayList<>(codonArray.length / 3);
+        byte[] tempSeq = new byte[codonArray.length / 3];
         for (int i = 0; i < codonArray.length; i += 3) {
             Codon codon = Codon.valueOf(String.valueOf(codonArray, i, 3));
-            tempSeq.add(codon);
+            tempSeq[i / 3] = (byte) codon.ordinal();
         }
-        this.sequence = tempSeq;
+        this.codons = tempSeq;
+        this.length = tempSeq.length;
     }
 
     public Sequence(List<Codon> codons) {
-        this.sequence = codons;
+        this.codons = new byte[0];
+        copyFrom(codons);
     }
 
     public void setSequence(List<Codon> seq) {
-        this.sequence = seq;
+        copyFrom(seq);
         this.bases = null;
+        stopTracking();
+    }
+
+    //Replace the packed storage with the given codons; another sequence's storage is shared, not copied
+    private void copyFrom(List<Codon> seq) {
+        this.offset = 0;
+        this.shared = false;
+        if (seq == null) {
+            this.codons = new byte[0];
+            this.length = 0;
+        } else if (seq instanceof Sequence) {
+            Sequence other = (Sequence) seq;
+            other.shared = true;
+            this.codons = other.codons;
+            this.offset = other.offset;
+            this.length = other.length;
+            this.shared = true;
+        } else {
+            byte[] tempSeq = new byte[seq.size()];
+            int i = 0;
+            for (Codon codon : seq) {
+                tempSeq[i++] = (byte) codon.ordinal();
+            }
+            this.codons = tempSeq;
+            this.length = tempSeq.length;
+        }
     }
 
     public List<Codon> getSequence() {
-        return sequence;
+        return this;
     }
 
     BaseSequence asBases() {
         if (this.bases == null) {
-            Base[] bases = new Base[sequence.size() * 3];
-            for (int i = 0; i < sequence.size(); i++) {
-                Codon codon = sequence.get(i);
-                System.arraycopy(codon.toBases(), 0, bases, i * 3, 3);
+            byte[] masks = new byte[length * 3];
+            for (int i = 0; i < length; i++) {
+                Base[] codonBase = Codon.fromOrdinal(codons[offset + i]).toBases();
+                for (int j = 0; j < 3; j++) {
+                    masks[i * 3 + j] = (byte) codonBase[j].getMask();
+                }
             }
-            this.bases = new BaseSequence(new ArrayList<>(Arrays.asList(bases)));
+            this.bases = new BaseSequence(masks, masks.length);
         }
         return this.bases;
     }
 
+    /**
+     * Start tracking changes from the current codons. Any restriction site found by the *NearChanges
+     * methods afterwards overlaps a codon that differs from this snapshot; when the snapshot had no sites,
+     * those methods therefore find every site in the sequence.
+     */
+    void markClean() {
+        this.dirty = new BitSet(length);
+        this.clean = Arrays.copyOfRange(codons, offset, offset + length);
+    }
+
+    //Inserting or removing codons shifts every index, so fall back to scanning everything
+    private void stopTracking() {
+        this.dirty = null;
+        this.clean = null;
+    }
+
+    /**
+     * Determine whether a restriction site overlaps any codon that differs from when the sequence was
+     * marked clean. Only bases within (longest site - 1) of those codons are rescanned; if the sequence
+     * is not being tracked, the whole sequence is scanned.
+     *
+     * @param scanner the compiled restriction sites
+     * @return true iff a restriction site was found
+     */
+    boolean containsRestrictionNearChanges(RestrictionScanner scanner) {
+        if (scanner.isEmpty()) return false;
+        BaseSequence bases = asBases();
+        int[] windows = changedWindows(scanner.getLongestSite());
+        for (int i = 0; i < windows.length; i += 2) {
+            if (scanner.containsAny(bases, windows[i], windows[i + 1])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Find every restriction site overlapping a codon that differs from when the sequence was marked clean,
+     * rescanning only the bases near those codons (or everything, if the sequence is not being tracked).
+     *
+     * @param scanner the compiled restriction sites
+     * @return the sites found, by base position and restriction index
+     */
+    List<RestrictionScanner.Hit> findRestrictionsNearChanges(RestrictionScanner scanner) {
+        List<RestrictionScanner.Hit> hits = new ArrayList<>();
+        if (scanner.isEmpty()) return hits;
+        BaseSequence bases = asBases();
+        int[] windows = changedWindows(scanner.getLongestSite());
+        for (int i = 0; i < windows.length; i += 2) {
+            hits.addAll(scanner.findAll(bases, windows[i], windows[i + 1]));
+        }
+        return hits;
+    }
+
+    //Merged [start, end) base windows that a site of up to siteLength bases touching a changed codon can lie in
+    private int[] changedWindows(int siteLength) {
+        int totalBases = length * 3;
+        if (dirty == null) {
+            return new int[]{0, totalBases};
+        }
+        int reach = siteLength - 1;
+        int[] windows = new int[0];
+        int count = 0;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            //Codons that were changed back since do not need checking anymore
+            if (codons[offset + i] == clean[i]) {
+                dirty.clear(i);
+                continue;
+            }
+            int start = Math.max(0, i * 3 - reach);
+            int end = Math.min(totalBases, i * 3 + 3 + reach);
+            if (count > 0 && start <= windows[count - 1]) {
+                windows[count - 1] = end;
+            } else {
+                if (count == windows.length) {
+                    windows = Arrays.copyOf(windows, Math.max(8, count * 2));
+                }
+                windows[count++] = start;
+                windows[count++] = end;
+            }
+        }
+        return Arrays.copyOf(windows, count);
+    }
+
     /**
      * Determine whether two sequences match
      *
@@ -150,7 +382,7 @@ public class Sequence extends AbstractList<Codon> {
             return false;
         }
         for (int i = 0; i < length; i++) {
-            if (seq1.get(start1 + i) != seq2.get(start2 + i)) {
+            if (seq1.getOrdinal(start1 + i) != seq2.getOrdinal(start2 + i)) {
                 return false;
             }
         }
@@ -160,6 +392,10 @@ public class Sequence extends AbstractList<Codon> {
 
     @Override
     public String toString() {
-        return Joiner.on("").join(sequence);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(Codon.fromOrdinal(codons[offset + i]));
+        }
+        return sb.toString();
     }
 }
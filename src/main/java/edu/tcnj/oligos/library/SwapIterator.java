@@ -1,16 +1,47 @@
 package edu.tcnj.oligos.library;
 
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.TreeMap;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Iterates over every combination of swaps for a set of positions, counting like an odometer over
+ * each position's list of candidates (the highest position changing fastest). Positions are numbered
+ * by slot, in increasing order; {@link #next(int[])} fills a buffer with each slot's swap without
+ * allocating anything. In {@link Order#GRAY_CODE} order the combinations follow a reflected
+ * mixed-radix Gray code instead, so each differs from the one before in exactly one slot.
+ */
 public class SwapIterator {
-    private Map<Integer, List<Integer>> potentialSwaps;
-    private TreeMap<Integer, Integer> swapIndices;
-    private int baseValue;
+    public enum Order {
+        //Count like an odometer; a step may change every slot
+        ODOMETER,
+        //Reflected Gray code; each step changes exactly one slot
+        GRAY_CODE
+    }
+
+    //Slot i holds the position positions[i], which can swap with any of candidates[i]
+    private final int[] positions;
+    private final int[][] candidates;
+    //The current index into each slot's candidates; values < 0 are do-nothing states
+    private final int[] indices;
+    private final int baseValue;
+    private final Order order;
+    //Gray code only: the direction (+1 or -1) each slot is moving in
+    private final int[] directions;
+    private boolean exhausted;
+    //The first slot changed by the last step (-1 before any), and the swap it held before
+    private int changedSlot = -1;
+    private int replacedSwap;
+    //The first slot that differs between the current combination and the one before it
+    private int pendingSlot = -1;
+    private int pendingReplaced;
 
     /**
      * Construct a SwapIterator for the given map of potentialSwaps,
@@ -33,17 +64,76 @@ public class SwapIterator {
      *                       other values mean skip indices less than baseValue
      */
     public SwapIterator(Map<Integer, List<Integer>> potentialSwaps, int baseValue) {
-        this.potentialSwaps = potentialSwaps;
+        this(potentialSwaps, baseValue, Order.ODOMETER);
+    }
+
+    /**
+     * Construct a SwapIterator going through the combinations in the given order
+     *
+     * @param potentialSwaps a map from an int (position) to a list of ints
+     *                       (positions of codons with the same acid)
+     * @param baseValue      the starting value for each iterator (see above)
+     * @param order          the order of the combinations
+     */
+    public SwapIterator(Map<Integer, List<Integer>> potentialSwaps, int baseValue, Order order) {
         this.baseValue = baseValue;
-        initializeIndices();
+        this.order = order;
+        TreeMap<Integer, List<Integer>> sorted = new TreeMap<>(potentialSwaps);
+        this.positions = new int[sorted.size()];
+        this.candidates = new int[sorted.size()][];
+        this.indices = new int[sorted.size()];
+        this.directions = new int[sorted.size()];
+        int slot = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : sorted.entrySet()) {
+            positions[slot] = entry.getKey();
+            candidates[slot] = new int[entry.getValue().size()];
+            for (int i = 0; i < candidates[slot].length; i++) {
+                candidates[slot][i] = entry.getValue().get(i);
+            }
+            indices[slot] = baseValue;
+            directions[slot] = 1;
+            if (baseValue >= candidates[slot].length) {
+                exhausted = true;
+            }
+            slot++;
+        }
     }
 
-    private void initializeIndices() {
-        //Set the indices to baseValue for every position
-        swapIndices = new TreeMap<>();
-        for (Map.Entry<Integer, List<Integer>> entry : potentialSwaps.entrySet()) {
-            swapIndices.put(entry.getKey(), baseValue);
+    /**
+     * @return the number of positions (slots) in each swap
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * @return the position that a slot of the swap buffer refers to
+     */
+    public int getPosition(int slot) {
+        checkElementIndex(slot, positions.length);
+        return positions[slot];
+    }
+
+    /**
+     * Whether the swaps of different slots never touch the same codon: no candidate belongs to two slots,
+     * or (when positions and candidates index the same sequence) is another slot's position. Only then
+     * can one slot's swap be taken back and another made in its place without undoing the slots after it.
+     *
+     * @param samePositions whether the positions and the candidates index the same sequence
+     */
+    public boolean hasDisjointSlots(boolean samePositions) {
+        Set<Integer> touched = new HashSet<>();
+        if (samePositions) {
+            for (int position : positions) {
+                touched.add(position);
+            }
+        }
+        for (int slot = 0; slot < positions.length; slot++) {
+            for (int candidate : candidates[slot]) {
+                if (!touched.add(candidate)) return false;
+            }
         }
+        return true;
     }
 
     /**
@@ -54,15 +144,8 @@ public class SwapIterator {
     public Map<Integer, Integer> peek() {
         if (!this.hasNext()) throw new NoSuchElementException("Out of potential swaps.");
         Map<Integer, Integer> currentSwap = new HashMap<>();
-        //For every position
-        for (Map.Entry<Integer, Integer> entry : swapIndices.entrySet()) {
-            //If the value is negative (a do-nothing state) put that value in the map
-            if (entry.getValue() <= -1) {
-                currentSwap.put(entry.getKey(), entry.getValue());
-            } else {
-                //Otherwise, get the potentialSwap that this entry's indices refer to, and put it in the map
-                currentSwap.put(entry.getKey(), potentialSwaps.get(entry.getKey()).get(entry.getValue()));
-            }
+        for (int slot = 0; slot < positions.length; slot++) {
+            currentSwap.put(positions[slot], swapAt(slot));
         }
         return currentSwap;
     }
@@ -73,35 +156,87 @@ public class SwapIterator {
      * @return A map from int (position) to int (a possible swap position)
      */
     public Map<Integer, Integer> next() {
-        //Get the current element to return it
         Map<Integer, Integer> nextVal = this.peek();
-        //Step to the next permutation
-        Iterator<Integer> it = swapIndices.descendingKeySet().iterator();
-        int key = it.next();
-        int value = swapIndices.get(key);
-        swapIndices.put(key, value + 1);
-        //If the current index overflows, reset it to baseValue and try incrementing the next index instead
-        //(Essentially counting with the least significant bits on the left)
-        //If the last index overflows, there are no permutations left so hasNext will later return false
-        while (swapIndices.get(key) >= potentialSwaps.get(key).size()
-                && it.hasNext()) {
-            swapIndices.put(key, baseValue);
-            key = it.next();
-            value = swapIndices.get(key);
-            swapIndices.put(key, value + 1);
-        }
+        advance();
         return nextVal;
     }
 
+    /**
+     * Get the current value into a buffer and advance to the next permutation
+     *
+     * @param swap filled with the swap position for each slot, or a negative (do-nothing) value;
+     *             at least {@link #size()} long
+     * @return the first slot that differs from the previous value (-1 for the first value); in
+     * Gray code order it is the only one, and {@link #getReplacedSwap()} gives what it held before
+     */
+    public int next(int[] swap) {
+        if (!this.hasNext()) throw new NoSuchElementException("Out of potential swaps.");
+        checkArgument(swap.length >= positions.length, "Swap buffer too small");
+        for (int slot = 0; slot < positions.length; slot++) {
+            swap[slot] = swapAt(slot);
+        }
+        changedSlot = pendingSlot;
+        replacedSwap = pendingReplaced;
+        advance();
+        return changedSlot;
+    }
+
+    /**
+     * @return the swap that the slot returned by the last {@link #next(int[])} held in the value before it
+     */
+    public int getReplacedSwap() {
+        checkElementIndex(changedSlot, positions.length, "No slot has changed yet");
+        return replacedSwap;
+    }
+
+    //The swap position for a slot, or its (negative) index in a do-nothing state
+    private int swapAt(int slot) {
+        int index = indices[slot];
+        return index < 0 ? index : candidates[slot][index];
+    }
+
+    private void advance() {
+        if (order == Order.GRAY_CODE) {
+            advanceGray();
+            return;
+        }
+        //Step the odometer: increment the last slot, carrying into earlier slots as they overflow
+        int slot = positions.length - 1;
+        while (slot >= 0 && indices[slot] + 1 >= candidates[slot].length) {
+            indices[slot] = baseValue;
+            slot--;
+        }
+        //The first slot overflowed (or there are no slots): every permutation has been seen
+        if (slot < 0) {
+            exhausted = true;
+            return;
+        }
+        pendingSlot = slot;
+        pendingReplaced = swapAt(slot);
+        indices[slot]++;
+    }
+
+    //Move the last slot that can go further in its direction; slots after it, being at an end, turn around
+    private void advanceGray() {
+        for (int slot = positions.length - 1; slot >= 0; slot--) {
+            int next = indices[slot] + directions[slot];
+            if (next >= baseValue && next < candidates[slot].length) {
+                pendingSlot = slot;
+                pendingReplaced = swapAt(slot);
+                indices[slot] = next;
+                return;
+            }
+            directions[slot] = -directions[slot];
+        }
+        exhausted = true;
+    }
+
     /**
      * Determine whether the iterator has run out of permutations
      *
      * @return true if there are still possible permutations, false otherwise
      */
     public boolean hasNext() {
-        for (Map.Entry<Integer, Integer> entry : swapIndices.entrySet()) {
-            if (entry.getValue() >= potentialSwaps.get(entry.getKey()).size()) return false;
-        }
-        return true;
+        return !exhausted;
     }
 }
@@ -0,0 +1,184 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Finds the genes with the highest (or lowest) codon pair scores among every gene that can be assembled
+ * from the oligos in a range, without assembling them all. A score is a gene's sum of pair values over its
+ * number of pairs, and both are sums of per-oligo (and, without overlaps, per-junction) shares; so the
+ * search keeps, for every group of partial genes ending in the same overlap with the same number of pairs,
+ * only the k best partial sums, and extends those with each oligo that can follow. Among genes with the
+ * same number of pairs the best sums are the best scores, so the k best genes are among those kept.
+ * Equal scores are ordered as a {@link GeneIterator} would return the genes.
+ */
+class TopGenes {
+
+    private TopGenes() {}
+
+    /**
+     * Find the best-scoring genes
+     *
+     * @param range         the range of oligo positions (inclusive)
+     * @param oligos        the oligos at each position
+     * @param overlapLength the length of an overlap
+     * @param scorer        the codon pair values
+     * @param k             the number of genes to find
+     * @param highest       whether to find the highest scores (otherwise the lowest)
+     * @return the paths of oligos making up the (up to) k best genes, best first; genes without a score are skipped
+     */
+    static List<List<Oligo>> find(Fragment.Range range, Map<Integer, List<Oligo>> oligos, int overlapLength,
+                                  CodonPairScorer scorer, int k, boolean highest) {
+        checkArgument(k > 0, "Need to find at least one gene");
+        double sign = highest ? -1 : 1;
+        PathScorer pathScorer = new PathScorer(scorer, overlapLength);
+        int start = range.getStartPosition();
+
+        List<Map<Integer, List<Partial>>> here = Lists.newArrayList();
+        List<Oligo> first = oligos.get(start);
+        for (int j = 0; j < first.size(); j++) {
+            double[] contribution = pathScorer.getContribution(first.get(j));
+            Map<Integer, List<Partial>> groups = Maps.newHashMap();
+            groups.put((int) contribution[1], Lists.newArrayList(
+                    new Partial(null, j, sign * contribution[0], (int) contribution[1])));
+            here.add(groups);
+        }
+        for (int pos = start + 1; pos <= range.getEndPosition(); pos++) {
+            LibraryUtils.checkInterrupt();
+            //Merge the partial genes ending in the same overlap (or, without overlaps, the same last codon)
+            List<Oligo> pre = oligos.get(pos - 1);
+            List<List<Integer>> ends = Lists.newArrayList(LibraryUtils.groupByEnd(pre, overlapLength).values());
+            List<Map<Integer, List<Partial>>> byEnd = Lists.newArrayList();
+            for (List<Integer> end : ends) {
+                Map<Integer, List<Partial>> groups = Maps.newHashMap();
+                for (int j : end) {
+                    for (Map.Entry<Integer, List<Partial>> entry : here.get(j).entrySet()) {
+                        group(groups, entry.getKey()).addAll(entry.getValue());
+                    }
+                }
+                for (List<Partial> group : groups.values()) {
+                    trim(group, k);
+                }
+                byEnd.add(groups);
+            }
+
+            List<Oligo> post = oligos.get(pos);
+            List<Map<Integer, List<Partial>>> next = Lists.newArrayList();
+            for (int j = 0; j < post.size(); j++) {
+                Map<Integer, List<Partial>> groups = Maps.newHashMap();
+                for (int e = 0; e < ends.size(); e++) {
+                    double[] shift = pathScorer.getShift(pre.get(ends.get(e).get(0)), post.get(j));
+                    if (shift == null) continue;
+                    int pairs = (int) shift[1];
+                    for (Map.Entry<Integer, List<Partial>> entry : byEnd.get(e).entrySet()) {
+                        List<Partial> group = group(groups, entry.getKey() + pairs);
+                        for (Partial partial : entry.getValue()) {
+                            group.add(new Partial(partial, j, partial.sum + sign * shift[0], entry.getKey() + pairs));
+                        }
+                    }
+                }
+                for (List<Partial> group : groups.values()) {
+                    trim(group, k);
+                }
+                next.add(groups);
+            }
+            here = next;
+        }
+
+        List<Partial> best = Lists.newArrayList();
+        for (Map<Integer, List<Partial>> groups : here) {
+            for (Map.Entry<Integer, List<Partial>> entry : groups.entrySet()) {
+                if (entry.getKey() > 0) best.addAll(entry.getValue());
+            }
+        }
+        Collections.sort(best, SCORE_ORDER);
+        List<List<Oligo>> paths = Lists.newArrayList();
+        for (Partial partial : best.subList(0, Math.min(k, best.size()))) {
+            int[] indices = partial.indices();
+            List<Oligo> path = Lists.newArrayListWithCapacity(indices.length);
+            for (int i = 0; i < indices.length; i++) {
+                path.add(oligos.get(start + i).get(indices[i]));
+            }
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    private static List<Partial> group(Map<Integer, List<Partial>> groups, int pairs) {
+        List<Partial> group = groups.get(pairs);
+        if (group == null) {
+            group = Lists.newArrayList();
+            groups.put(pairs, group);
+        }
+        return group;
+    }
+
+    //Keep the k best partial genes of a group (all having the same number of pairs)
+    private static void trim(List<Partial> group, int k) {
+        if (group.size() <= 1) return;
+        Collections.sort(group, SCORE_ORDER);
+        if (group.size() > k) {
+            group.subList(k, group.size()).clear();
+        }
+    }
+
+    //Best score first, then in the order genes are assembled by a GeneIterator
+    private static final Comparator<Partial> SCORE_ORDER = new Comparator<Partial>() {
+        @Override
+        public int compare(Partial p1, Partial p2) {
+            //Each partial gene's score is computed on its own, so that the order is transitive even when
+            //rounding makes nearly equal scores disagree with their sums
+            int byScore = Double.compare(p1.score(), p2.score());
+            if (byScore != 0) return byScore;
+            int[] indices1 = p1.indices();
+            int[] indices2 = p2.indices();
+            for (int i = 0; i < Math.min(indices1.length, indices2.length); i++) {
+                if (indices1[i] != indices2[i]) return Integer.compare(indices1[i], indices2[i]);
+            }
+            return Integer.compare(indices1.length, indices2.length);
+        }
+    };
+
+    /**
+     * A partial gene: the index of its last oligo, and the partial gene before it.
+     * The sum is negated when looking for the highest scores, so smaller is always better.
+     */
+    private static class Partial {
+        final Partial previous;
+        final int index;
+        final double sum;
+        final int pairs;
+        final int length;
+
+        Partial(Partial previous, int index, double sum, int pairs) {
+            this.previous = previous;
+            this.index = index;
+            this.sum = sum;
+            this.pairs = pairs;
+            this.length = previous == null ? 1 : previous.length + 1;
+        }
+
+        //The sum over the number of pairs (0 without any pairs, when the sum is 0 too)
+        double score() {
+            return pairs == 0 ? 0 : sum / pairs;
+        }
+
+        //The index of the oligo used at each position
+        int[] indices() {
+            int[] indices = new int[length];
+            Partial partial = this;
+            for (int i = length - 1; i >= 0; i--) {
+                indices[i] = partial.index;
+                partial = partial.previous;
+            }
+            return indices;
+        }
+    }
+}
@@ -81,7 +81,7 @@ public class FileInputOligoDesigner {
         }
         br.close();
 
-        Runner runner = new Runner("design.py", seq, start, end, offset, oligoSize, overlapSize, codons,
+        Runner runner = new Runner(seq, start, end, offset, oligoSize, overlapSize, codons,
                 mins, maxs, numLevels, restrictions, minOverlapDiffs);
 
         runner.run();
@@ -15,14 +15,9 @@ class GeneListModel extends SequenceListModel {
     void addGenes(Library lib) {
         super.removeAllElements();
 
-        List<Sequence> geneSeqs = LibraryUtils.buildPermutations(new Fragment.Range(0, lib.getSize() - 1),
-                lib.getOligos(), lib.getOligoLength(), lib.getOverlapLength());
-        this.genes = Lists.newArrayListWithCapacity(geneSeqs.size());
-
-        Map<AminoAcid, Codon> coi = lib.getCodonsOfInterest();
-        for (Sequence gene : geneSeqs) {
-            this.genes.add(Gene.fromSequence(gene, coi));
-        }
+        //The list shows every gene, so they are all built up front
+        this.genes = Gene.fromOligos(new Fragment.Range(0, lib.getSize() - 1), lib.getOligos(),
+                lib.getOverlapLength(), lib.getCodonsOfInterest());
 
         for (int i = 0; i < genes.size(); i++) {
             Gene gene = genes.get(i);
@@ -394,8 +394,7 @@ public final class OligoDesigner {
             public void actionPerformed(ActionEvent actionEvent) {
                 calculateOligosButton.setEnabled(false);
                 calculateOligosButton.setVisible(false);
-                OligoDesigner.this.currentRunner = new Runner(
-                        (useOldDesignScriptCheckBox.isSelected() ? "design2.py" : "design.py"), rnaInputField.getText(),
+                OligoDesigner.this.currentRunner = new Runner(rnaInputField.getText(),
                         val(seqStartSpinner.getValue()), val(seqEndSpinner.getValue()),
                         val(seqOffsetSpinner.getValue()), val(oligoLengthSpinner.getValue()),
                         val(overlapSizeSpinner.getValue()), codons(), freqs(1), freqs(2), levels(), restrictionSites(),
@@ -6,7 +6,7 @@ import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Ints;
 import edu.tcnj.oligos.data.AminoAcid;
 import edu.tcnj.oligos.data.Codon;
-import edu.tcnj.oligos.ext.PythonHandler;
+import edu.tcnj.oligos.design.DesignSolver;
 import edu.tcnj.oligos.library.BaseSequence;
 import edu.tcnj.oligos.library.Design;
 import edu.tcnj.oligos.library.Library;
@@ -14,10 +14,10 @@ import edu.tcnj.oligos.library.Protein;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class Runner {
     private String seq;
-    private String scriptName;
     private int start;
     private int end;
     private int offset;
@@ -31,7 +31,7 @@ public class Runner {
     private List<BaseSequence> restrictions;
     private Library lastLib;
 
-    public Runner(String scriptName, String seq, int start, int end, int offset, int oligoSize, int overlapSize,
+    public Runner(String seq, int start, int end, int offset, int oligoSize, int overlapSize,
            List<String> codons, List<Double> mins, List<Double> maxs, List<Integer> numLevels,
            List<BaseSequence> restrictions, int minOverlapDiffs) {
         this.seq = seq;
@@ -45,7 +45,6 @@ public class Runner {
         this.maxs = maxs;
         this.numLevels = numLevels;
         this.restrictions = restrictions;
-        this.scriptName = scriptName;
         this.minOverlapDiffs = minOverlapDiffs;
     }
 
@@ -62,9 +61,9 @@ public class Runner {
             aoi += Codon.valueOf(s).getAminoAcid().getCh();
         }
 
-        PythonHandler pyth = new PythonHandler(scriptName, proteinString, aoi, oligoSize / 3, overlapSize / 3,
+        DesignSolver solver = new DesignSolver(proteinString, aoi, oligoSize / 3, overlapSize / 3,
                 Doubles.toArray(mins), Doubles.toArray(maxs), Ints.toArray(numLevels));
-        Map<AminoAcid, Design> designMap = pyth.run();
+        Map<AminoAcid, Design> designMap = solver.run(ForkJoinPool.commonPool());
 
 
         // get amino acids from codons
@@ -107,7 +106,7 @@ public class Runner {
         lib.initBaseFrequencies(baseFrequencyMap);
 
         lib.createOligos();
-        lib.fillFragments();
+        lib.fillFragments(ForkJoinPool.commonPool());
 
         lib.createOverlaps();
         lib.makeOverlapsUnique();
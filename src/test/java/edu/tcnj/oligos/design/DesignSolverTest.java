@@ -0,0 +1,158 @@
+package edu.tcnj.oligos.design;
+
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.AminoAcid;
+import edu.tcnj.oligos.design.IntervalDesign.Interval;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DesignSolverTest {
+
+    private static String chosenIntervals(List<Acid> acids, int[] best) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < acids.size(); i++) {
+            sb.append(acids.get(i).getDesignList().get(best[i]).getIntervals());
+        }
+        return sb.toString();
+    }
+
+    private static int[] solve(List<Acid> acids) {
+        List<List<double[]>> scoreList = Lists.newArrayList();
+        for (Acid acid : acids) {
+            List<double[]> scores = Lists.newArrayList();
+            for (IntervalDesign design : acid.getDesignList()) {
+                scores.add(design.getScore());
+            }
+            scoreList.add(scores);
+        }
+        return DesignSolver.computeBestScoreCombo(scoreList);
+    }
+
+    @Test
+    public void testMatchesScript() {
+        //Expected values are the output of design.py for the same input
+        String protein = "LAALSLLALSALLASLLAAL";
+        Acid leucine = new Acid('L', protein, 6, 2, 0.2, 0.6, 4);
+        assertArrayEquals(new int[]{3, 1}, leucine.getRequiredAcids());
+        List<Acid> acids = Lists.newArrayList(leucine);
+        assertEquals("[(0, 1), (2, 2)]", chosenIntervals(acids, solve(acids)));
+
+        protein = "LAALSLLALSALLASLLAALSSLAL";
+        acids = Lists.newArrayList(new Acid('L', protein, 6, 2, 0.2, 0.6, 4),
+                new Acid('S', protein, 6, 2, 0.0, 0.5, 2));
+        assertArrayEquals(new int[]{3, 2}, acids.get(0).getRequiredAcids());
+        assertArrayEquals(new int[]{3}, acids.get(1).getRequiredAcids());
+        assertEquals("[(1, 2), (0, 0)][(3, 5)]", chosenIntervals(acids, solve(acids)));
+    }
+
+    @Test
+    public void testFirstComboBest() {
+        //Every acid gets its first design when the first combination is already the best
+        List<List<double[]>> scoreList = Lists.newArrayList();
+        scoreList.add(Lists.newArrayList(new double[]{1, 2}, new double[]{2, 2}));
+        scoreList.add(Lists.newArrayList(new double[]{2, 1}, new double[]{2, 1}));
+        assertArrayEquals(new int[]{0, 0}, DesignSolver.computeBestScoreCombo(scoreList));
+    }
+
+    @Test
+    public void testRun() {
+        DesignSolver solver = new DesignSolver("LAALSLLALSALLASLLAALSSLAL", "LS", 6, 2,
+                new double[]{0.2, 0.0}, new double[]{0.6, 0.5}, new int[]{4, 2});
+        assertEquals(Lists.newArrayList(AminoAcid.getAcidForSymbol("L"), AminoAcid.getAcidForSymbol("S")),
+                Lists.newArrayList(solver.run().keySet()));
+    }
+
+    //Every combination in order, keeping the first of equal sums
+    private static int[] exhaustiveBest(List<List<double[]>> scoreList) {
+        int[] indices = new int[scoreList.size()];
+        int[] best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        while (true) {
+            double sum = 0;
+            for (int s = 0; s < scoreList.get(0).get(0).length; s++) {
+                double product = 1;
+                for (int acid = 0; acid < indices.length; acid++) {
+                    product *= scoreList.get(acid).get(indices[acid])[s];
+                }
+                sum += product;
+            }
+            if (sum < bestScore) {
+                bestScore = sum;
+                best = indices.clone();
+            }
+            int acid = indices.length - 1;
+            while (acid >= 0 && ++indices[acid] == scoreList.get(acid).size()) {
+                indices[acid] = 0;
+                acid--;
+            }
+            if (acid < 0) return best;
+        }
+    }
+
+    @Test
+    public void testBranchAndBoundMatchesExhaustive() {
+        Random random = new Random(7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int trial = 0; trial < 200; trial++) {
+            int numAcids = 1 + random.nextInt(4);
+            int length = 1 + random.nextInt(6);
+            List<List<double[]>> scoreList = Lists.newArrayList();
+            for (int acid = 0; acid < numAcids; acid++) {
+                List<double[]> scores = Lists.newArrayList();
+                int numDesigns = 1 + random.nextInt(6);
+                for (int d = 0; d < numDesigns; d++) {
+                    double[] score = new double[length];
+                    for (int s = 0; s < length; s++) {
+                        //Small powers of two, so many combinations tie
+                        score[s] = 1 << random.nextInt(3);
+                    }
+                    scores.add(score);
+                }
+                scoreList.add(scores);
+            }
+            int[] expected = exhaustiveBest(scoreList);
+            assertArrayEquals(expected, DesignSolver.computeBestScoreCombo(scoreList));
+            assertArrayEquals(expected, DesignSolver.computeBestScoreCombo(scoreList, pool));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSkylineMatchesPairwise() {
+        Random random = new Random(11);
+        List<Interval> noIntervals = Collections.emptyList();
+        for (int trial = 0; trial < 200; trial++) {
+            int length = 1 + random.nextInt(5);
+            List<IntervalDesign> designs = Lists.newArrayList();
+            for (int d = random.nextInt(30); d > 0; d--) {
+                double[] score = new double[length];
+                for (int s = 0; s < length; s++) {
+                    score[s] = 1 << random.nextInt(3);
+                }
+                designs.add(new IntervalDesign(noIntervals, score));
+            }
+            //The all-pairs check from design.py, removing from the end
+            List<IntervalDesign> expected = Lists.newArrayList(designs);
+            for (int i = expected.size() - 1; i >= 0; i--) {
+                for (IntervalDesign other : expected) {
+                    boolean atLeast = true;
+                    for (int s = 0; s < length; s++) {
+                        atLeast &= expected.get(i).getScore()[s] >= other.getScore()[s];
+                    }
+                    if (other != expected.get(i) && atLeast) {
+                        expected.remove(i);
+                        break;
+                    }
+                }
+            }
+            assertEquals(expected, DesignSolver.removeSuboptimalDesigns(designs));
+        }
+    }
+}
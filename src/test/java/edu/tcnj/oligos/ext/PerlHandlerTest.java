@@ -0,0 +1,56 @@
+package edu.tcnj.oligos.ext;
+
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.Codon;
+import edu.tcnj.oligos.library.CodonPairScorer;
+import edu.tcnj.oligos.library.Sequence;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PerlHandlerTest {
+
+    @Test
+    public void testPooledScoresMatchScorer() throws IOException {
+        System.setProperty(PerlHandler.DIRECTORY_PROPERTY, "run");
+        CodonPairScorer scorer = CodonPairScorer.fromFile(new File("run", CodonPairScorer.DEFAULT_TABLE));
+        List<Codon> codons = Lists.newArrayList();
+        for (Codon codon : Codon.values()) {
+            //Skip the placeholders for unknown codons
+            if (!codon.getBases().contains("?")) codons.add(codon);
+        }
+        Random random = new Random(5);
+        //More genes than fit in one batch, including one without any pair
+        List<String> genes = Lists.newArrayList("ATG");
+        for (int i = 0; i < 300; i++) {
+            StringBuilder gene = new StringBuilder();
+            for (int j = 0; j < 2 + random.nextInt(20); j++) {
+                gene.append(codons.get(random.nextInt(codons.size())).getBases());
+            }
+            genes.add(gene.toString());
+        }
+
+        //Twice, so that the second call reuses the worker returned by the first
+        for (int call = 0; call < 2; call++) {
+            List<Double> scores = PerlHandler.getCodonPairScores(genes);
+            assertEquals(genes.size(), scores.size());
+            assertNull(scores.get(0));
+            for (int i = 1; i < genes.size(); i++) {
+                Double expected = scorer.score(new Sequence(genes.get(i)));
+                if (expected == null) {
+                    assertNull(scores.get(i));
+                } else {
+                    assertEquals(expected, scores.get(i), 1e-9);
+                }
+            }
+        }
+        assertEquals(scorer.score(new Sequence("CTGCTGCTGCTGAGCAGC")),
+                PerlHandler.getCodonPairScore("CTGCTGCTGCTGAGCAGC"), 1e-9);
+    }
+}
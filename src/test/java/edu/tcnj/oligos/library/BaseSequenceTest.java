@@ -4,6 +4,10 @@ import com.google.common.collect.Lists;
 import edu.tcnj.oligos.data.Base;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -20,4 +24,55 @@ public class BaseSequenceTest {
         assertTrue(three.posOfMatch(four) != -1);
         assertFalse(four.posOfMatch(three) != -1);
     }
+
+    @Test
+    public void testDegenerateMatches() {
+        BaseSequence padded = new BaseSequence(Lists.asList(Base.A, Base.Z, new Base[]{Base.Z, Base.C}));
+        BaseSequence anything = new BaseSequence(Lists.asList(Base.N, Base.N, new Base[]{Base.N}));
+        BaseSequence degenerate = new BaseSequence(Lists.asList(Base.W, Base.B, new Base[]{Base.S}));
+        BaseSequence concrete = new BaseSequence(Lists.asList(Base.G, Base.T, new Base[]{Base.T, Base.C}));
+
+        assertFalse(padded.posOfMatch(anything) != -1);
+        assertTrue(concrete.posOfMatch(degenerate) == 1);
+        assertTrue(Base.B.matches(Base.W));
+        assertFalse(Base.Z.matches(Base.Z));
+    }
+
+    private static BaseSequence randomBases(Random random, Base[] alphabet, int length) {
+        List<Base> bases = Lists.newArrayList();
+        for (int i = 0; i < length; i++) {
+            bases.add(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return new BaseSequence(bases);
+    }
+
+    @Test
+    public void testPackedDifferences() {
+        Random random = new Random(7);
+        Base[] concrete = {Base.A, Base.C, Base.G, Base.T};
+        Base[] any = {Base.A, Base.C, Base.G, Base.T, Base.N};
+        for (int trial = 0; trial < 500; trial++) {
+            Base[] alphabet = trial % 5 == 0 ? any : concrete;
+            BaseSequence one = randomBases(random, alphabet, random.nextInt(80));
+            BaseSequence two = randomBases(random, concrete, Math.max(0, one.size() + random.nextInt(3) - 1));
+            for (int step = 0; step < 10; step++) {
+                int bytewise = BaseSequence.numDifferences(one, 0, one.size(), two, 0, two.size());
+                assertEquals(bytewise, BaseSequence.numDifferences(one, two));
+                int limit = random.nextInt(10);
+                int limited = BaseSequence.numDifferences(one, two, limit);
+                assertTrue(bytewise < limit ? limited == bytewise : limited >= limit);
+
+                //Change the sequences in place, as overlaps are changed by swapping codons
+                if (one.size() > 0) {
+                    one.set(random.nextInt(one.size()), alphabet[random.nextInt(alphabet.length)]);
+                }
+                if (two.size() > 0 && random.nextBoolean()) {
+                    two.setMask(random.nextInt(two.size()), concrete[random.nextInt(4)].getMask());
+                }
+                if (random.nextInt(5) == 0) {
+                    two.add(random.nextInt(two.size() + 1), concrete[random.nextInt(4)]);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CodonPairScorerTest {
+
+    @Test
+    public void testMatchesScript() throws IOException {
+        CodonPairScorer scorer = CodonPairScorer.fromFile(new File("run", CodonPairScorer.DEFAULT_TABLE));
+        //Expected values are the output of cps.pl for the same genes; pairs with the stop codon are skipped
+        assertEquals(-0.0745651121178604, scorer.score(new Sequence("ATGGCTAAACTGTAA")), 1e-14);
+        assertEquals(-0.188071176777232, scorer.score(new Sequence("CTGCTGCTGCTGAGCAGC")), 1e-14);
+        assertNull(scorer.score(new Sequence("ATG")));
+    }
+
+    //Four positions of four oligos each, made of few codons (including a stop codon, so some pairs are skipped)
+    private static Map<Integer, List<Oligo>> randomOligos(Random random, int overlapLength) {
+        Codon[] codons = {Codon.CTG, Codon.AAA, Codon.TAA, Codon.GCC};
+        Map<Integer, List<Oligo>> oligos = Maps.newHashMap();
+        for (int pos = 0; pos < 4; pos++) {
+            List<Oligo> here = Lists.newArrayList();
+            for (int i = 0; i < 4; i++) {
+                Sequence seq = new Sequence("");
+                if (pos > 0) {
+                    //Start with the overlap of some oligo before, so that most of them connect
+                    Oligo previous = oligos.get(pos - 1).get(random.nextInt(4));
+                    seq.addAll(previous.subList(previous.size() - overlapLength, previous.size()));
+                }
+                while (seq.size() < overlapLength + 3) {
+                    seq.add(codons[random.nextInt(codons.length)]);
+                }
+                here.add(new Oligo(seq, Collections.<Codon, Integer>emptyMap()));
+            }
+            oligos.put(pos, here);
+        }
+        return oligos;
+    }
+
+    @Test
+    public void testPathScoresMatchWholeGenes() throws IOException {
+        CodonPairScorer scorer = CodonPairScorer.fromFile(new File("run", CodonPairScorer.DEFAULT_TABLE));
+        Random random = new Random(3);
+        for (int overlapLength = 0; overlapLength <= 2; overlapLength++) {
+            Map<Integer, List<Oligo>> oligos = randomOligos(random, overlapLength);
+            PathScorer pathScorer = new PathScorer(scorer, overlapLength);
+            GeneIterator it = new GeneIterator(new Fragment.Range(0, 3), oligos, overlapLength);
+            int genes = 0;
+            while (it.hasNext()) {
+                Double expected = scorer.score(it.next());
+                Double actual = pathScorer.score(it.getPath());
+                if (expected == null) {
+                    assertNull(actual);
+                } else {
+                    assertEquals(expected, actual, 1e-12);
+                }
+                genes++;
+            }
+            assertTrue(genes > 0);
+        }
+    }
+
+    private static int bin(ScoreSummary summary, double score) {
+        if (summary.getBinWidth() == 0) return 0;
+        int bin = (int) Math.floor((score - summary.getMin()) / summary.getBinWidth());
+        return Math.max(0, Math.min(summary.getNumBins() - 1, bin));
+    }
+
+    @Test
+    public void testSummaryMatchesEnumeration() throws IOException {
+        CodonPairScorer scorer = CodonPairScorer.fromFile(new File("run", CodonPairScorer.DEFAULT_TABLE));
+        Random random = new Random(5);
+        for (int overlapLength = 0; overlapLength <= 2; overlapLength++) {
+            Map<Integer, List<Oligo>> oligos = randomOligos(random, overlapLength);
+            List<Double> scores = Lists.newArrayList();
+            GeneIterator it = new GeneIterator(new Fragment.Range(0, 3), oligos, overlapLength);
+            while (it.hasNext()) {
+                Double score = scorer.score(it.next());
+                if (score != null) scores.add(score);
+            }
+            ScoreSummary summary = ScoreSummary.summarize(new Fragment.Range(0, 3), oligos, overlapLength, scorer, 5);
+            assertEquals(scores.size(), summary.getCount());
+            double mean = 0;
+            for (double score : scores) {
+                mean += score / scores.size();
+            }
+            double variance = 0;
+            for (double score : scores) {
+                variance += (score - mean) * (score - mean) / scores.size();
+            }
+            assertEquals(Collections.min(scores), summary.getMin(), 1e-12);
+            assertEquals(Collections.max(scores), summary.getMax(), 1e-12);
+            assertEquals(mean, summary.getMean(), 1e-12);
+            assertEquals(variance, summary.getVariance(), 1e-12);
+            //Each score is binned to within 1/32 of a bin, so one that close to a boundary may land on either side
+            double slack = summary.getBinWidth() / 32;
+            long[] surely = new long[5];
+            long[] maybe = new long[5];
+            long total = 0;
+            for (double score : scores) {
+                int low = bin(summary, score - slack);
+                int high = bin(summary, score + slack);
+                if (low == high) surely[low]++;
+                for (int bin = low; bin <= high; bin++) {
+                    maybe[bin]++;
+                }
+            }
+            for (int bin = 0; bin < 5; bin++) {
+                assertTrue(surely[bin] <= summary.getBinCount(bin) && summary.getBinCount(bin) <= maybe[bin]);
+                total += summary.getBinCount(bin);
+            }
+            assertEquals(scores.size(), total);
+        }
+    }
+
+    @Test
+    public void testTopGenesMatchEnumeration() throws IOException {
+        CodonPairScorer scorer = CodonPairScorer.fromFile(new File("run", CodonPairScorer.DEFAULT_TABLE));
+        Random random = new Random(7);
+        for (int overlapLength = 0; overlapLength <= 2; overlapLength++) {
+            Map<Integer, List<Oligo>> oligos = randomOligos(random, overlapLength);
+            List<Double> scores = Lists.newArrayList();
+            GeneIterator it = new GeneIterator(new Fragment.Range(0, 3), oligos, overlapLength);
+            while (it.hasNext()) {
+                Double score = scorer.score(it.next());
+                if (score != null) scores.add(score);
+            }
+            Collections.sort(scores);
+            for (boolean highest : new boolean[]{true, false}) {
+                List<List<Oligo>> top = TopGenes.find(new Fragment.Range(0, 3), oligos, overlapLength,
+                        scorer, 5, highest);
+                assertEquals(Math.min(5, scores.size()), top.size());
+                for (int i = 0; i < top.size(); i++) {
+                    double expected = scores.get(highest ? scores.size() - 1 - i : i);
+                    assertEquals(expected, scorer.score(Sequence.concat(top.get(i), overlapLength)), 1e-12);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FillEngineTest {
+    private static final RestrictionScanner SCANNER = RestrictionScanner.compile(
+            Collections.singletonList(new Sequence("CTCGAG").asBases()));
+
+    //Fills a plain sequence, counting how many times it was checked
+    private static class SequenceTarget implements FillEngine.Target {
+        private final Sequence sequence;
+        private int checks = 0;
+
+        SequenceTarget(String rna) {
+            this.sequence = new Sequence(rna);
+        }
+
+        @Override
+        public void set(int index, Codon codon) {
+            sequence.set(index, codon);
+        }
+
+        @Override
+        public int[] findRestriction() {
+            checks++;
+            RestrictionScanner.Hit hit = SCANNER.findFirst(sequence.asBases(), 0, sequence.size() * 3);
+            return hit == null ? null : new int[]{hit.getPosition() / 3, (hit.getPosition() + 5) / 3};
+        }
+    }
+
+    @Test
+    public void testStrategiesAvoidSites() {
+        List<Integer> spots = Lists.newArrayList(0, 2, 4);
+        List<Codon> codons = Lists.newArrayList(Codon.CTC, Codon.CTT, Codon.CTA);
+        for (FillEngine.Strategy strategy : FillEngine.Strategy.values()) {
+            for (int seed = 0; seed < 20; seed++) {
+                //Only CTC in the first spot makes a site
+                SequenceTarget target = new SequenceTarget("CTGGAGCTGGAACTGGAA");
+                FillEngine engine = new FillEngine(strategy, 100, new Random(seed));
+                assertTrue(engine.fill(target, spots, codons) > 0);
+                assertFalse(SCANNER.containsAny(target.sequence.asBases()));
+                assertTrue(target.sequence.get(0) != Codon.CTC);
+            }
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        List<Integer> spots = Lists.newArrayList(0, 2);
+        SequenceTarget target = new SequenceTarget("CTGGAGCTGGAG");
+        FillEngine engine = new FillEngine(FillEngine.Strategy.RANDOM_RESTART, 25, new Random(1));
+        assertEquals(-1, engine.fill(target, spots, Lists.newArrayList(Codon.CTC, Codon.CTT)));
+        assertEquals(25, target.checks);
+
+        //A single arrangement is only tried once
+        target = new SequenceTarget("CTGGAGCTGGAG");
+        assertEquals(-1, engine.fill(target, spots, Lists.newArrayList(Codon.CTC, Codon.CTC)));
+        assertEquals(1, target.checks);
+    }
+
+    @Test
+    public void testNearestSiteStopsWhenEveryArrangementFails() {
+        //CTC in any spot makes a site; each arrangement is checked once, well within the budget
+        for (int seed = 0; seed < 10; seed++) {
+            FillEngine engine = new FillEngine(FillEngine.Strategy.NEAREST_SITE, 25, new Random(seed));
+            SequenceTarget target = new SequenceTarget("CTGGAGCTGGAG");
+            assertEquals(-1, engine.fill(target, Lists.newArrayList(0, 2), Lists.newArrayList(Codon.CTC, Codon.CTT)));
+            assertEquals(2, target.checks);
+
+            target = new SequenceTarget("CTGGAGCTGGAGCTGGAG");
+            assertEquals(-1, engine.fill(target, Lists.newArrayList(0, 2, 4),
+                    Lists.newArrayList(Codon.CTC, Codon.CTT, Codon.CTT)));
+            assertEquals(3, target.checks);
+
+            //Fixing a CTC in place rules out every arrangement that keeps it there without checking them
+            target = new SequenceTarget("CTGGAGCTGGAGCTGGAGCTGGAG");
+            assertEquals(-1, engine.fill(target, Lists.newArrayList(0, 2, 4, 6),
+                    Lists.newArrayList(Codon.CTC, Codon.CTC, Codon.CTT, Codon.CTA)));
+            assertTrue(target.checks <= 12);
+
+            //A site away from every spot can't be removed at all
+            target = new SequenceTarget("CTGGAACTGGAACTCGAG");
+            assertEquals(-1, engine.fill(target, Lists.newArrayList(0, 2), Lists.newArrayList(Codon.CTC, Codon.CTT)));
+            assertEquals(1, target.checks);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import edu.tcnj.oligos.data.AminoAcid;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GeneIteratorTest {
+    private static Oligo oligo(String rna) {
+        return new Oligo(new Sequence(rna), Collections.<Codon, Integer>emptyMap());
+    }
+
+    @Test
+    public void testAssemblesInOrder() {
+        //Oligos of 3 codons overlapping by 1; only oligos sharing the overlap codon can be assembled
+        Map<Integer, List<Oligo>> oligos = Maps.newHashMap();
+        oligos.put(0, Lists.newArrayList(oligo("ATGGCTAAA"), oligo("ATGGCCAAG")));
+        oligos.put(1, Lists.newArrayList(oligo("AAGTTTGGA"), oligo("AAATTCGGA"), oligo("AAATTTGGG")));
+        oligos.put(2, Lists.newArrayList(oligo("GGACCC"), oligo("GGGCCA")));
+
+        GeneIterator it = new GeneIterator(new Fragment.Range(0, 2), oligos, 1);
+        List<String> genes = Lists.newArrayList();
+        while (it.hasNext()) {
+            genes.add(it.next().toString());
+            if (genes.size() == 1) {
+                assertSame(oligos.get(1).get(1), it.getPath().get(1));
+            }
+        }
+        assertEquals(Lists.newArrayList(
+                "ATGGCTAAATTCGGACCC",
+                "ATGGCTAAATTTGGGCCA",
+                "ATGGCCAAGTTTGGACCC"), genes);
+        assertEquals(genes.size(), LibraryUtils.buildPermutations(new Fragment.Range(0, 2), oligos, 3, 1).size());
+        GeneCount count = GeneCount.count(new Fragment.Range(0, 2), oligos, 1);
+        assertEquals(BigInteger.valueOf(3), count.getTotal());
+        assertEquals(Lists.newArrayList(BigInteger.valueOf(2), BigInteger.ONE), count.getGenesThrough(0));
+        assertEquals(BigInteger.valueOf(2), count.getGenesThrough(2, 0));
+
+        //A range with no way through yields nothing
+        oligos.put(2, Collections.singletonList(oligo("TTTCCC")));
+        assertFalse(new GeneIterator(new Fragment.Range(0, 2), oligos, 1).hasNext());
+        assertEquals(BigInteger.ZERO, GeneCount.count(new Fragment.Range(0, 2), oligos, 1).getTotal());
+    }
+
+    @Test
+    public void testJunctionCheckMatchesEnumeration() {
+        //Few codons so that overlaps connect often and sites show up across junctions
+        Codon[] codons = {Codon.CTC, Codon.GAG, Codon.GGA, Codon.TCG};
+        RestrictionScanner scanner = RestrictionScanner.compile(Lists.newArrayList(
+                new Sequence("CTCGAG").asBases(), new Sequence("GAGGGATCG").asBases()));
+        Random random = new Random(7);
+        int agreed = 0;
+        for (int trial = 0; trial < 300; trial++) {
+            Map<Integer, List<Oligo>> oligos = Maps.newHashMap();
+            for (int pos = 0; pos < 4; pos++) {
+                List<Oligo> here = Lists.newArrayList();
+                for (int k = 0; k < 3; k++) {
+                    StringBuilder rna = new StringBuilder();
+                    for (int c = 0; c < 4; c++) {
+                        rna.append(codons[random.nextInt(codons.length)]);
+                    }
+                    here.add(oligo(rna.toString()));
+                }
+                oligos.put(pos, here);
+            }
+            Fragment.Range range = new Fragment.Range(0, 3);
+            boolean expected = LibraryUtils.containsRestrictionEnzyme(new GeneIterator(range, oligos, 1), scanner);
+            RestrictionScanner.Hit hit = LibraryUtils.findRestrictionEnzyme(range, oligos, 1, scanner);
+            assertEquals(expected, hit != null);
+            if (expected) {
+                //The reported site is really in one of the genes, where it says it is
+                BaseSequence site = scanner.getRestrictions().get(hit.getRestriction());
+                boolean found = false;
+                for (Sequence gene : LibraryUtils.buildPermutations(range, oligos, 4, 1)) {
+                    found |= gene.asBases().matchesAt(site, hit.getPosition());
+                }
+                assertTrue(found);
+                agreed++;
+            }
+        }
+        assertTrue(agreed > 0);
+    }
+
+    @Test
+    public void testGeneFreqsFromPaths() {
+        Map<Integer, List<Oligo>> oligos = Maps.newHashMap();
+        oligos.put(0, Lists.newArrayList(oligo("CTGGCTCTA"), oligo("CTCGCCCTG")));
+        oligos.put(1, Lists.newArrayList(oligo("CTGCTTGCA"), oligo("CTACTCGCG"), oligo("CTGCTGGCA")));
+        oligos.put(2, Lists.newArrayList(oligo("GCACTT"), oligo("GCGCTA")));
+        Map<AminoAcid, Codon> coi = Maps.newEnumMap(AminoAcid.class);
+        coi.put(AminoAcid.LEU, Codon.CTG);
+        coi.put(AminoAcid.ALA, Codon.GCG);
+
+        List<Gene> genes = Gene.fromOligos(new Fragment.Range(0, 2), oligos, 1, coi);
+        assertEquals(3, genes.size());
+        for (Gene gene : genes) {
+            assertEquals(Gene.fromSequence(gene, coi).getFreqs(), gene.getFreqs());
+        }
+        //CTC GCC CTG CTT GCA CTT: 1/4 CTG, no GCG
+        assertEquals(0.25, genes.get(1).getFreqs().get(AminoAcid.LEU).get(Codon.CTG), 1e-12);
+        assertEquals(0.0, genes.get(1).getFreqs().get(AminoAcid.ALA).get(Codon.GCG), 1e-12);
+    }
+}
@@ -0,0 +1,179 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import edu.tcnj.oligos.data.AminoAcid;
+import edu.tcnj.oligos.data.Base;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LibraryTest {
+    //pGLO GFP, as in the designer's test data
+    private static final String RNA = "ATGGCTAGCAAAGGAGAAGAACTTTTCACTGGAGTTGTCCCAATTCTTGTTGAATTAGATGGTGATGTTAATGGG"
+            + "CACAAATTTTCTGTCAGTGGAGAGGGTGAAGGTGATGCTACATACGGAAAGCTTACCCTTAAATTTATTTGCACTACTGGAAAACTACCTGTT"
+            + "CCATGGCCAACACTTGTCACTACTTTCTCTTATGGTGTTCAATGCTTTTCCCGTTATCCGGATCATATGAAACGGCATGACTTTTTCAAGAGT"
+            + "GCCATGCCCGAAGGTTATGTACAGGAACGCACTATATCTTTCAAAGATGACGGGAACTACAAGACGCGTGCTGAAGTCAAGTTTGAAGGTGAT"
+            + "ACCCTTGTTAATCGTATCGAGTTAAAAGGTATTGATTTTAAAGAAGATGGAAACATTCTCGGACACAAACTCGAGTACAACTATAACTCACAC"
+            + "AATGTATACATCACGGCAGACAAACAAAAGAATGGAATCAAAGCTAACTTCAAAATTCGCCACAACATTGAAGATGGATCCGTTCAACTAGCA"
+            + "GACCATTATCAACAAAATACTCCAATTGGCGATGGCCCTGTCCTTTTACCAGACAACCATTACCTGTCGACACAATCTGCCCTTTCGAAAGAT"
+            + "CCCAACGAAAAGCGTGACCACATGGTCCTTCTTGAGTTTGTAACTGCTGCTGGGATTACACATGGCATGGATGAGCTCTACAAATAA";
+    private static final List<BaseSequence> SITES = sites(
+            "GCTAGC", "TGTACA", "TTCGAA", "TGGCCA", "CCATGG", "CTCGAG", "VCTCGAGB", "CCWWGG", "AGGAGG");
+
+    private static List<BaseSequence> sites(String... sites) {
+        List<BaseSequence> restrictions = Lists.newArrayList();
+        for (String site : sites) {
+            List<Base> bases = Lists.newArrayList();
+            for (char c : site.toCharArray()) {
+                bases.add(Base.valueOf(String.valueOf(c)));
+            }
+            restrictions.add(new BaseSequence(bases));
+        }
+        return restrictions;
+    }
+
+    //Build a five-oligo library (lengths in codons) with several overlaps at each position,
+    //padding the sequence as Runner does so that the last oligo is a full one
+    private static Library create(int oligoLength, int overlapLength, int differencesNeeded,
+                                  SwapIterator.Order order) {
+        int start = 12;
+        int offset = -12;
+        int smalligo = oligoLength - overlapLength;
+        int offsetToEndOfLastSmalligo = RNA.length() / 3 - (start + offset) - overlapLength;
+        int end = oligoLength - offsetToEndOfLastSmalligo % smalligo + offsetToEndOfLastSmalligo + offset;
+        Map<Codon, Design> designs = ImmutableMap.of(
+                Codon.CTA, new Design(ImmutableMap.<Fragment.Range, List<Integer>>of(
+                        new Fragment.Range(0, 1), Arrays.asList(0, 2), new Fragment.Range(2, 2), Arrays.asList(0, 1))),
+                Codon.TCG, new Design(ImmutableMap.<Fragment.Range, List<Integer>>of(
+                        new Fragment.Range(1, 3), Arrays.asList(0, 2, 4))));
+        Library library = new Library.Builder()
+                .withProteinFromRNA(RNA.substring(3 * start))
+                .withOligoSize(oligoLength, overlapLength)
+                .withDifferencesNeeded(differencesNeeded)
+                .withSequenceLength(offset, end)
+                .withCodonsOfInterest(ImmutableMap.of(AminoAcid.LEU, Codon.CTA, AminoAcid.SER, Codon.TCG))
+                .withDesigns(designs)
+                .withRestrictions(SITES)
+                .withSwapOrder(order)
+                .build();
+        library.removeRestrictionEnzymes();
+        library.initBaseFrequencies(ImmutableMap.of(Codon.CTA, 0.105, Codon.TCG, 0.16));
+        library.createOligos();
+        return library;
+    }
+
+    private static Library build(int oligoLength, int overlapLength, int differencesNeeded,
+                                 SwapIterator.Order order) {
+        Library library = create(oligoLength, overlapLength, differencesNeeded, order);
+        library.fillFragments();
+        library.createOverlaps();
+        return library;
+    }
+
+    //Make the overlaps unique, checking the result; returns whether there were enough swaps to do it
+    private static boolean makeOverlapsUnique(int oligoLength, int overlapLength, int differencesNeeded,
+                                              SwapIterator.Order order) {
+        Library library = build(oligoLength, overlapLength, differencesNeeded, order);
+        try {
+            library.makeOverlapsUnique();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof OutOfSwapsException) return false;
+            throw e;
+        }
+
+        List<Overlap> overlaps = Lists.newArrayList(library.overlapIterator());
+        assertTrue(overlaps.size() > library.getSize() - 1);
+        for (int i = 0; i < overlaps.size(); i++) {
+            for (int j = i + 1; j < overlaps.size(); j++) {
+                assertTrue(BaseSequence.numDifferences(overlaps.get(i).asBases(), overlaps.get(j).asBases())
+                        >= differencesNeeded);
+            }
+        }
+        assertFalse(LibraryUtils.containsRestrictionEnzyme(new Fragment.Range(0, library.getSize() - 1),
+                library.getOligos(), library.getOverlapLength(), RestrictionScanner.compile(SITES)));
+        return true;
+    }
+
+    @Test
+    public void testGrayCodeMakesOverlapsUnique() {
+        //{oligo length, overlap length, differences needed}; the last two need every overlap's own swaps
+        int[][] cases = {{60, 10, 4}, {60, 10, 6}, {60, 10, 7}, {60, 8, 5}, {60, 6, 4}};
+        int solved = 0;
+        for (int[] c : cases) {
+            boolean odometer = makeOverlapsUnique(c[0], c[1], c[2], SwapIterator.Order.ODOMETER);
+            boolean gray = makeOverlapsUnique(c[0], c[1], c[2], SwapIterator.Order.GRAY_CODE);
+            //Wherever counting through every combination works, so does going through them in Gray code order
+            assertTrue(gray || !odometer);
+            if (odometer) solved++;
+        }
+        assertTrue(solved > 0);
+    }
+
+    //Count each fragment's codon of interest in the part of its oligos that it fills, checking that every oligo
+    //of the fragment at a position holds the same number of that codon
+    private static Map<String, Integer> countFilledCodons(Library library) {
+        Map<String, Integer> counts = Maps.newHashMap();
+        Iterator<Fragment> it = library.fragmentIterator();
+        while (it.hasNext()) {
+            Fragment fragment = it.next();
+            Codon codon = fragment.getCodon();
+            Map<Integer, List<Oligo>> oligos = fragment.getOligos();
+            List<Oligo> path = Lists.newArrayList();
+            for (Map.Entry<Integer, List<Oligo>> entry : new TreeMap<>(oligos).entrySet()) {
+                for (Oligo oligo : entry.getValue()) {
+                    assertEquals(count(entry.getValue().get(0), codon), count(oligo, codon));
+                }
+                path.add(entry.getValue().get(0));
+            }
+            int first = Collections.min(oligos.keySet());
+            int last = Collections.max(oligos.keySet());
+            Sequence filled = Sequence.concat(path, library.getOverlapLength());
+            int start = first == 0 ? 0 : library.getOverlapLength();
+            int end = filled.size() - (last == library.getSize() - 1 ? 0 : library.getOverlapLength());
+            counts.put(fragment.toString(), count(filled.subList(start, end), codon));
+        }
+        return counts;
+    }
+
+    private static int count(Sequence sequence, Codon codon) {
+        int count = 0;
+        for (Codon c : sequence) {
+            if (c == codon) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testFillFragmentsOnPool() {
+        Library library = create(60, 10, 4, SwapIterator.Order.ODOMETER);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            library.fillFragments(pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertFalse(LibraryUtils.containsRestrictionEnzyme(new Fragment.Range(0, library.getSize() - 1),
+                library.getOligos(), library.getOverlapLength(), RestrictionScanner.compile(SITES)));
+
+        //Each design level should get the same number of its codon as when the fragments are filled one at a time
+        Library sequential = create(60, 10, 4, SwapIterator.Order.ODOMETER);
+        sequential.fillFragments();
+        Map<String, Integer> expected = countFilledCodons(sequential);
+        assertTrue(expected.size() > 1);
+        assertEquals(expected, countFilledCodons(library));
+    }
+}
@@ -0,0 +1,68 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OverlapIndexTest {
+    //Few codons, differing in one base, so that near matches are common
+    private static final String[] CODONS = {"CTG", "CTC", "CTA", "CTT", "CAG"};
+
+    private static Overlap randomOverlap(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int numCodons = 1 + random.nextInt(3);
+        for (int i = 0; i < numCodons; i++) {
+            sb.append(CODONS[random.nextInt(CODONS.length)]);
+        }
+        return new Overlap(new Sequence(sb.toString()), Collections.<Codon, Integer>emptyMap());
+    }
+
+    private static boolean linearMatchesAny(Overlap overlap, List<Overlap> stored, List<BaseSequence> bases,
+                                            int differencesNeeded) {
+        for (int i = 0; i < stored.size(); i++) {
+            if (stored.get(i) != overlap
+                    && BaseSequence.numDifferences(overlap.asBases(), bases.get(i)) < differencesNeeded) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(42);
+        for (int differencesNeeded = 0; differencesNeeded <= 10; differencesNeeded++) {
+            OverlapIndex index = new OverlapIndex(differencesNeeded);
+            List<Overlap> stored = Lists.newArrayList();
+            List<BaseSequence> bases = Lists.newArrayList();
+            for (int step = 0; step < 300; step++) {
+                Overlap overlap = randomOverlap(random);
+                assertEquals(linearMatchesAny(overlap, stored, bases, differencesNeeded), index.matchesAny(overlap));
+                int action = random.nextInt(4);
+                if (action < 2) {
+                    index.add(overlap);
+                    stored.add(overlap);
+                    bases.add(overlap.asBases().subList(0, overlap.asBases().size()));
+                } else if (action == 2 && !stored.isEmpty()) {
+                    int i = random.nextInt(stored.size());
+                    assertEquals(true, index.remove(stored.get(i)));
+                    stored.remove(i);
+                    bases.remove(i);
+                } else if (!stored.isEmpty()) {
+                    //Changing a stored overlap doesn't change what the index holds for it
+                    Overlap changed = stored.get(random.nextInt(stored.size()));
+                    changed.setOrdinal(0, Codon.valueOf(CODONS[random.nextInt(CODONS.length)]).ordinal());
+                    assertEquals(linearMatchesAny(changed, stored, bases, differencesNeeded),
+                            index.matchesAny(changed));
+                }
+                assertEquals(stored.size(), index.size());
+            }
+        }
+    }
+}
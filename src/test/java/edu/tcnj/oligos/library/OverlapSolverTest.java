@@ -0,0 +1,126 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OverlapSolverTest {
+    //Each overlap (CTG CTG) can swap either codon with one of four other leucine codons kept beside it
+    private static final Map<Integer, List<Integer>> SWAPS = ImmutableMap.<Integer, List<Integer>>of(
+            0, Arrays.asList(0, 1, 2, 3), 1, Arrays.asList(0, 1, 2, 3));
+
+    private static class Target implements OverlapSolver.Target {
+        final Map<Integer, List<Overlap>> overlaps = Maps.newHashMap();
+        final Map<Overlap, Sequence> sides = new IdentityHashMap<>();
+
+        Target(int numPositions, int perPosition) {
+            for (int pos = 0; pos < numPositions; pos++) {
+                List<Overlap> list = Lists.newArrayList();
+                for (int i = 0; i < perPosition; i++) {
+                    Overlap overlap = new Overlap(new Sequence("CTGCTG"), Collections.<Codon, Integer>emptyMap());
+                    sides.put(overlap, new Sequence("CTACTCCTTTTA"));
+                    list.add(overlap);
+                }
+                overlaps.put(pos, list);
+            }
+        }
+
+        @Override
+        public void swap(Overlap overlap, int overlapIndex, int attachIndex) {
+            if (attachIndex < 0) return;
+            Sequence side = sides.get(overlap);
+            int temp = overlap.setOrdinal(overlapIndex, side.getOrdinal(attachIndex));
+            side.setOrdinal(attachIndex, temp);
+        }
+
+        //Pretend that TTA as the second codon of an overlap makes a site
+        @Override
+        public boolean hasRestriction(int pos) {
+            for (Overlap overlap : overlaps.get(pos)) {
+                if (overlap.get(1) == Codon.TTA) return true;
+            }
+            return false;
+        }
+
+        //The pretend sites are one codon long
+        @Override
+        public boolean hasLongRestriction() {
+            return false;
+        }
+
+        boolean hasRestrictions() {
+            for (int pos : overlaps.keySet()) {
+                if (hasRestriction(pos)) return true;
+            }
+            return false;
+        }
+
+        List<String> contents() {
+            List<String> contents = Lists.newArrayList();
+            for (int pos = 0; pos < overlaps.size(); pos++) {
+                for (Overlap overlap : overlaps.get(pos)) {
+                    contents.add(overlap.toString() + sides.get(overlap));
+                }
+            }
+            return contents;
+        }
+    }
+
+    private static Target solve(int differencesNeeded, int maxSteps, long seed, boolean solvable) {
+        Target target = new Target(3, 4);
+        Map<Integer, Map<Integer, List<Integer>>> potentialSwaps = Maps.newHashMap();
+        for (int pos = 0; pos < 3; pos++) {
+            potentialSwaps.put(pos, SWAPS);
+        }
+        OverlapSolver solver = new OverlapSolver(OverlapSolver.Strategy.MIN_CONFLICTS, maxSteps, seed);
+        int steps = solver.solve(target.overlaps, potentialSwaps, differencesNeeded, target);
+        assertEquals(solvable, steps != -1);
+        return target;
+    }
+
+    @Test
+    public void testMakesOverlapsUnique() {
+        for (long seed = 0; seed < 10; seed++) {
+            Target target = solve(1, 10000, seed, true);
+            assertFalse(target.hasRestrictions());
+            List<Overlap> all = Lists.newArrayList();
+            for (List<Overlap> list : target.overlaps.values()) {
+                all.addAll(list);
+            }
+            for (Overlap overlap : all) {
+                for (Overlap other : all) {
+                    if (other != overlap) {
+                        assertTrue(BaseSequence.numDifferences(overlap.asBases(), other.asBases()) >= 1);
+                    }
+                }
+                //Swaps only move codons between an overlap and its side
+                List<Codon> codons = Lists.newArrayList(overlap);
+                codons.addAll(target.sides.get(overlap));
+                Collections.sort(codons);
+                List<Codon> original = Lists.newArrayList(new Sequence("CTGCTGCTACTCCTTTTA"));
+                Collections.sort(original);
+                assertEquals(original, codons);
+            }
+            //The same seed gives the same overlaps
+            assertEquals(target.contents(), solve(1, 10000, seed, true).contents());
+        }
+    }
+
+    @Test
+    public void testRunsOutOfSteps() {
+        //No two 6-base overlaps can differ in 7 bases
+        solve(7, 100, 0, false);
+    }
+}
@@ -0,0 +1,41 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlacementEngineTest {
+    private static final RestrictionScanner SCANNER = RestrictionScanner.compile(
+            Collections.singletonList(new Sequence("CTCGAG").asBases()));
+
+    @Test
+    public void testPlacesCountsWithoutSites() {
+        //Leucine spots at 0, 2, 4, 6; CTC in spot 0 or 4 (followed by GAG) would make a site
+        List<Integer> spots = Lists.newArrayList(0, 2, 4, 6);
+        for (int seed = 0; seed < 20; seed++) {
+            Sequence sequence = new Sequence("CTGGAGCTGGAACTGGAGCTGAAA");
+            PlacementEngine engine = new PlacementEngine(1000, new Random(seed));
+            int attempts = engine.place(sequence, spots, spots, Codon.CTC, 2,
+                    ImmutableMap.of(Codon.CTT, 1, Codon.CTA, 1), SCANNER);
+            assertTrue(attempts > 0);
+            assertFalse(SCANNER.containsAny(sequence.asBases()));
+            assertEquals(Codon.CTC, sequence.get(2));
+            assertEquals(Codon.CTC, sequence.get(6));
+        }
+
+        //With spot 6 not allowed for the codon of interest, two of them cannot be placed
+        Sequence sequence = new Sequence("CTGGAGCTGGAACTGGAGCTGAAA");
+        PlacementEngine engine = new PlacementEngine(1000, new Random(0));
+        assertEquals(-1, engine.place(sequence, spots, Lists.newArrayList(0, 2, 4), Codon.CTC, 2,
+                ImmutableMap.of(Codon.CTT, 1, Codon.CTA, 1), SCANNER));
+    }
+}
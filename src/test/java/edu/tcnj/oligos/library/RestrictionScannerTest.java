@@ -0,0 +1,62 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.Lists;
+import edu.tcnj.oligos.data.Base;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RestrictionScannerTest {
+    private static BaseSequence bases(String str) {
+        List<Base> bases = Lists.newArrayList();
+        for (char c : str.toCharArray()) {
+            bases.add(Base.valueOf(String.valueOf(c)));
+        }
+        return new BaseSequence(bases);
+    }
+
+    @Test
+    public void testDegenerateSites() {
+        RestrictionScanner scanner = RestrictionScanner.compile(Lists.newArrayList(
+                bases("VCTCGAGB"), bases("CCWWGG"), bases("CTCGAG")));
+        List<RestrictionScanner.Hit> hits = scanner.findAll(bases("TTACTCGAGCAACCTAGGT"));
+
+        assertEquals(3, hits.size());
+        assertEquals(3, hits.get(0).getPosition());
+        assertEquals(2, hits.get(0).getRestriction());
+        assertEquals(2, hits.get(1).getPosition());
+        assertEquals(0, hits.get(1).getRestriction());
+        assertEquals(12, hits.get(2).getPosition());
+        assertEquals(1, hits.get(2).getRestriction());
+        assertFalse(scanner.containsAny(bases("TTACTCGAGCAACCTAGGT"), 4, 17));
+        assertFalse(scanner.containsAny(bases("CTCZZZCTCGZG")));
+        assertTrue(scanner.containsAny(bases("CCNNGG")));
+    }
+
+    @Test
+    public void testMatchesPosOfMatch() {
+        List<BaseSequence> sites = Lists.newArrayList(bases("GCTAGC"), bases("TGTACA"), bases("CCWWGG"),
+                bases("VCTCGAGB"), bases("AGGAGG"), bases("GCTAGC"), bases("AC"));
+        RestrictionScanner scanner = RestrictionScanner.compile(sites);
+        Random random = new Random(42);
+        Base[] alphabet = {Base.A, Base.C, Base.G, Base.T};
+        for (int trial = 0; trial < 200; trial++) {
+            List<Base> bases = Lists.newArrayList();
+            for (int i = 0; i < 300; i++) {
+                bases.add(alphabet[random.nextInt(4)]);
+            }
+            BaseSequence sequence = new BaseSequence(bases);
+            int[] expected = new int[sites.size()];
+            for (int i = 0; i < sites.size(); i++) {
+                expected[i] = sequence.posOfMatch(sites.get(i));
+            }
+            assertArrayEquals(expected, scanner.firstPositions(sequence));
+        }
+    }
+}
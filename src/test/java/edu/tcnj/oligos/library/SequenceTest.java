@@ -0,0 +1,52 @@
+package edu.tcnj.oligos.library;
+
+import edu.tcnj.oligos.data.Codon;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SequenceTest {
+    @Test
+    public void testSubListCopyOnWrite() {
+        Sequence parent = new Sequence("ATGGCTAGCAAAGGA");
+        Sequence view = parent.subList(1, 4);
+        Oligo copy = new Oligo(view, Collections.<Codon, Integer>emptyMap());
+
+        assertEquals("GCTAGCAAA", view.toString());
+        view.set(0, Codon.GCC);
+        assertEquals("GCCAGCAAA", view.toString());
+        assertEquals("ATGGCTAGCAAAGGA", parent.toString());
+        assertEquals("GCTAGCAAA", copy.toString());
+
+        parent.set(2, Codon.AGT);
+        copy.remove(0);
+        assertEquals("ATGGCTAGTAAAGGA", parent.toString());
+        assertEquals("GCCAGCAAA", view.toString());
+        assertEquals("AGCAAA", copy.toString());
+        assertEquals("GCCAGCAAAAGCAAA", Sequence.concat(view, copy, 0).toString());
+    }
+
+    @Test
+    public void testRestrictionsNearChanges() {
+        RestrictionScanner scanner = RestrictionScanner.compile(Collections.singletonList(new Sequence("CTCGAG").asBases()));
+        Sequence seq = new Sequence("ATGAAACTGGAAGGATTTCCC");
+        seq.markClean();
+        assertFalse(seq.containsRestrictionNearChanges(scanner));
+
+        //CTG GAA -> CTC GAG creates a site spanning the two changed codons
+        seq.set(2, Codon.CTC);
+        assertFalse(seq.containsRestrictionNearChanges(scanner));
+        seq.set(3, Codon.GAG);
+        assertTrue(seq.containsRestrictionNearChanges(scanner));
+        assertEquals(6, seq.findRestrictionsNearChanges(scanner).get(0).getPosition());
+
+        //Reverting a codon drops it from the rescan
+        seq.set(3, Codon.GAA);
+        assertFalse(seq.containsRestrictionNearChanges(scanner));
+        assertTrue(seq.findRestrictionsNearChanges(scanner).isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+package edu.tcnj.oligos.library;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SwapIteratorTest {
+    private static final Map<Integer, List<Integer>> SWAPS = ImmutableMap.<Integer, List<Integer>>of(
+            4, Arrays.asList(7, 9),
+            2, Arrays.asList(0, 1, 3),
+            5, Arrays.<Integer>asList());
+
+    @Test
+    public void testOdometerOrder() {
+        SwapIterator swapIt = new SwapIterator(SWAPS);
+        assertEquals(3, swapIt.size());
+        assertEquals(2, swapIt.getPosition(0));
+        assertEquals(5, swapIt.getPosition(2));
+
+        List<List<Integer>> seen = Lists.newArrayList();
+        int[] swap = new int[swapIt.size()];
+        while (swapIt.hasNext()) {
+            swapIt.next(swap);
+            seen.add(Arrays.asList(swap[0], swap[1], swap[2]));
+        }
+        //(1 + 3) * (1 + 2) * (1 + 0) states, counting with the last position fastest
+        assertEquals(12, seen.size());
+        assertEquals(Arrays.asList(-1, -1, -1), seen.get(0));
+        assertEquals(Arrays.asList(-1, 7, -1), seen.get(1));
+        assertEquals(Arrays.asList(0, -1, -1), seen.get(3));
+        assertEquals(Arrays.asList(3, 9, -1), seen.get(11));
+        assertEquals(12, Sets.newHashSet(seen).size());
+    }
+
+    @Test
+    public void testMapsMatchBuffer() {
+        //Without do-nothing states, a position with no candidates leaves nothing to iterate
+        assertFalse(new SwapIterator(SWAPS, 0).hasNext());
+
+        Map<Integer, List<Integer>> swaps = ImmutableMap.<Integer, List<Integer>>of(
+                1, Arrays.asList(4, 6), 3, Arrays.asList(8, 2, 0));
+        SwapIterator maps = new SwapIterator(swaps, 0);
+        SwapIterator buffers = new SwapIterator(swaps, 0);
+        Set<Map<Integer, Integer>> seen = Sets.newHashSet();
+        int[] swap = new int[2];
+        while (maps.hasNext()) {
+            Map<Integer, Integer> next = maps.next();
+            buffers.next(swap);
+            assertEquals(ImmutableMap.of(1, swap[0], 3, swap[1]), next);
+            seen.add(next);
+        }
+        assertFalse(buffers.hasNext());
+        assertEquals(6, seen.size());
+    }
+
+    @Test
+    public void testGrayCodeChangesOneSlot() {
+        Map<Integer, List<Integer>> swaps = ImmutableMap.<Integer, List<Integer>>of(
+                0, Arrays.asList(5, 6, 7), 1, Arrays.asList(8), 2, Arrays.<Integer>asList(), 3, Arrays.asList(2, 9));
+        for (int baseValue : new int[]{-2, -1, 0}) {
+            SwapIterator odometer = new SwapIterator(swaps, baseValue);
+            SwapIterator gray = new SwapIterator(swaps, baseValue, SwapIterator.Order.GRAY_CODE);
+            Set<List<Integer>> expected = Sets.newHashSet();
+            int[] swap = new int[4];
+            while (odometer.hasNext()) {
+                odometer.next(swap);
+                expected.add(Arrays.asList(swap[0], swap[1], swap[2], swap[3]));
+            }
+
+            Set<List<Integer>> seen = Sets.newHashSet();
+            int[] previous = null;
+            while (gray.hasNext()) {
+                int changed = gray.next(swap);
+                if (previous == null) {
+                    assertEquals(-1, changed);
+                } else {
+                    for (int slot = 0; slot < 4; slot++) {
+                        if (slot == changed) {
+                            assertEquals(previous[slot], gray.getReplacedSwap());
+                            assertFalse(previous[slot] == swap[slot]);
+                        } else {
+                            assertEquals(previous[slot], swap[slot]);
+                        }
+                    }
+                }
+                previous = swap.clone();
+                //Every combination is visited once
+                assertTrue(seen.add(Arrays.asList(swap[0], swap[1], swap[2], swap[3])));
+            }
+            assertEquals(expected, seen);
+        }
+    }
+
+    @Test
+    public void testDisjointSlots() {
+        assertTrue(new SwapIterator(SWAPS).hasDisjointSlots(true));
+        //Position 2 can swap with position 4, which is another slot
+        Map<Integer, List<Integer>> swaps = ImmutableMap.<Integer, List<Integer>>of(
+                2, Arrays.asList(0, 4), 4, Arrays.asList(7, 9));
+        assertTrue(new SwapIterator(swaps).hasDisjointSlots(false));
+        assertFalse(new SwapIterator(swaps).hasDisjointSlots(true));
+        //Two slots sharing a candidate
+        assertFalse(new SwapIterator(ImmutableMap.<Integer, List<Integer>>of(
+                1, Arrays.asList(7, 9), 2, Arrays.asList(9, 3))).hasDisjointSlots(false));
+    }
+}